@@ -0,0 +1,38 @@
+import Turtle.*;
+Turtle t;
+int segments = 200000;
+
+void setup() {
+  size(800,800);
+  background(255);
+  stroke(0,40);
+  t = new Turtle(this);
+  t.setWrapAround(true);
+  noLoop();
+}
+
+void draw () {
+  background(255);
+  //draw the same spiral walk once line by line, then once batched
+  float immediate = segmentsPerSecond(false);
+  float batched = segmentsPerSecond(true);
+  println("immediate: " + immediate + " segments/sec");
+  println("batched:   " + batched + " segments/sec");
+}
+
+//time how long it takes to draw the walk, including the final flush
+float segmentsPerSecond(boolean batch)
+{
+  t.clearTurtleHistory();
+  t.setBatchedDrawing(batch);
+  int start = millis();
+  for (int i=0;i<segments;i++)
+  {
+    t.forward(3);
+    t.right(0.01*i);
+  }
+  t.flushLines();
+  int elapsed = max(1, millis()-start);
+  t.setBatchedDrawing(false);
+  return segments*1000.0/elapsed;
+}
@@ -0,0 +1,46 @@
+package Turtle;
+
+/**
+ * TurtleCanvas interface, the surface a {@link TurtleCore} draws on.
+ * Implement it to send a Turtle's lines somewhere other than a Processing
+ * sketch, e.g. to a file or an off-screen renderer.
+ */
+public interface TurtleCanvas {
+
+    /**
+     * Width of the canvas, used to place the Turtle and for wrap-around.
+     * @return The canvas width.
+     */
+    int getWidth();
+
+    /**
+     * Height of the canvas, used to place the Turtle and for wrap-around.
+     * @return The canvas height.
+     */
+    int getHeight();
+
+    /**
+     * Draws a line the Turtle has made with its pen down.
+     * @param x0 X coordinate of the start point.
+     * @param y0 Y coordinate of the start point.
+     * @param x1 X coordinate of the end point.
+     * @param y1 Y coordinate of the end point.
+     */
+    void line(float x0, float y0, float x1, float y1);
+
+    /**
+     * Draws a filled triangle, such as the Turtle's marker. Canvases that
+     * can't fill shapes may keep this default, which draws its outline.
+     * @param x1 X coordinate of the first corner.
+     * @param y1 Y coordinate of the first corner.
+     * @param x2 X coordinate of the second corner.
+     * @param y2 Y coordinate of the second corner.
+     * @param x3 X coordinate of the third corner.
+     * @param y3 Y coordinate of the third corner.
+     */
+    default void triangle(float x1, float y1, float x2, float y2, float x3, float y3) {
+        line(x1, y1, x2, y2);
+        line(x2, y2, x3, y3);
+        line(x3, y3, x1, y1);
+    }
+}
@@ -0,0 +1,1080 @@
+package Turtle;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * TurtleCore class, the headless part of a LOGO Turtle. It moves, records its
+ * history and answers questions about its path, and hands every line it
+ * draws to a {@link TurtleCanvas}, so it can run without a Processing sketch.
+ * {@link Turtle} wraps it for use in sketches.
+ * 
+ * @author Leah Buechley
+ */
+
+public class TurtleCore {
+	public float currentX;
+	public float currentY;
+	public float currentTheta;
+	public int currentPenState;
+	private float savedX;
+	private float savedY;
+	private float savedTheta;
+	private int savedState;
+	private boolean pushFlag;
+	private boolean wrapAround;
+	private tSpatialGrid pathGrid; // grid over the history for closeToPath, built on first use
+	private int pathGridLength; // number of history lines already filed in pathGrid
+	private int pathGridTunedLength; // history length when pathGrid's cell size was chosen
+	private float pathGridCellSize; // cell size for pathGrid, 0 to pick one from the history
+	private tRTree historyTree; // R-tree over drawn history lines, built on first query
+	private int historyTreeLength; // number of history lines already considered for historyTree
+	tLineBuffer commandHistory; // command history is a growable store of lines
+	private tStateStack pushHistory; // stack to store pushed turtle states
+	private float headingTheta = Float.NaN; // heading that headingSin/headingCos were computed for
+	double headingSin;
+	double headingCos;
+	private tFixedPoint fixedPoint; // fixed-point engine for moves and turns, null when off
+	private int fixedPointBits = tFixedPoint.DEFAULT_BITS; // fractional bits the engine uses
+
+	TurtleCanvas canvas; // where drawn lines go
+
+	/**
+	 * Basic constructor, creates a Turtle in the middle of the canvas.
+	 * 
+	 * @param canvasInput
+	 *            canvas that receives the lines the Turtle draws.
+	 */
+	public TurtleCore(TurtleCanvas canvasInput) {
+		canvas = canvasInput;
+		currentX = canvas.getWidth() / 2;
+		currentY = canvas.getHeight() / 2;
+		currentTheta = 0;
+		currentPenState = penStates.PENDOWN;
+		commandHistory = new tLineBuffer();
+		this.addHistoryLine();
+		pushFlag = false;
+		pushHistory = new tStateStack();
+		wrapAround = false;
+	}
+
+	/**
+	 * Headless constructor, creates a Turtle in the middle of a blank canvas
+	 * of the given size. Lines are recorded in the history but not drawn
+	 * anywhere.
+	 * 
+	 * @param width
+	 *            canvas width.
+	 * 
+	 * @param height
+	 *            canvas height.
+	 */
+	public TurtleCore(int width, int height) {
+		this(new tBlankCanvas(width, height));
+	}
+
+	/**
+	 * Copy constructor, creates a copy of the input Turtle drawing on the same
+	 * canvas.
+	 * 
+	 * @param T
+	 *            creates a new Turtle using parameters from the input Turtle,
+	 *            T.
+	 */
+	public TurtleCore(TurtleCore T) {
+		this(T, T.canvas);
+	}
+
+	// copy of T that draws on canvasInput instead
+	TurtleCore(TurtleCore T, TurtleCanvas canvasInput) {
+		canvas = canvasInput;
+		currentX = T.getX();
+		currentY = T.getY();
+		currentTheta = T.getHeading();
+		currentPenState = T.getPenState();
+		commandHistory = new tLineBuffer();
+		this.addHistoryLine();
+		pushFlag = false;
+		pushHistory = new tStateStack(T.pushHistory);
+		wrapAround = T.wrapAround;
+		fixedPointBits = T.fixedPointBits;
+		if (T.fixedPoint != null)
+			fixedPoint = new tFixedPoint(fixedPointBits);
+	}
+
+	/**
+	 * Move Turtle forward.
+	 * 
+	 * @param distance
+	 *            number of steps (maps to pixels) to move.
+	 */
+	public void forward(float distance) {
+		if (this.wrapAround)
+			forwardWrapAround(distance);
+		else {
+			if (fixedPoint != null) {
+				fixedPoint.move(this, distance);
+			} else {
+				updateHeadingVector();
+				currentX = currentX + (float) (headingSin * distance);
+				currentY = currentY - (float) (headingCos * distance);
+			}
+			this.addHistoryLine();
+			this.drawLastHistoryLine();
+		}
+	}
+
+	/**
+	 * Move Turtle backward.
+	 * 
+	 * @param distance
+	 *            number of steps (maps to pixels) to move.
+	 */
+	public void back(float distance) {
+		if (this.wrapAround)
+			forwardWrapAround(-distance);
+		else {
+			if (fixedPoint != null) {
+				fixedPoint.move(this, -distance);
+			} else {
+				updateHeadingVector();
+				currentX = currentX - (float) (headingSin * distance);
+				currentY = currentY + (float) (headingCos * distance);
+			}
+			this.addHistoryLine();
+			this.drawLastHistoryLine();
+		}
+	}
+
+	/**
+	 * Turn Turtle to the right.
+	 * 
+	 * @param angle
+	 *            degrees to turn.
+	 */
+	public void right(float angle) {
+		if (fixedPoint != null)
+			fixedPoint.turn(this, angle);
+		else
+			currentTheta = currentTheta + angle;
+	}
+
+	/**
+	 * Turn Turtle to the left.
+	 * 
+	 * @param angle
+	 *            degrees to turn.
+	 */
+	public void left(float angle) {
+		if (fixedPoint != null)
+			fixedPoint.turn(this, -angle);
+		else
+			currentTheta = currentTheta - angle;
+	}
+
+	/**
+	 * Set Turtle's pen state to PENUP.
+	 * 
+	 */
+	public void penUp() {
+		currentPenState = penStates.PENUP;
+	}
+
+	/**
+	 * Set Turtle's pen state to PENDOWN.
+	 * 
+	 */
+	public void penDown() {
+		currentPenState = penStates.PENDOWN;
+	}
+
+	/**
+	 * Save ("push") Turtle's current state to the stack.
+	 * 
+	 */
+	public void push() {
+		pushHistory.push(this.currentX, this.currentY, this.currentTheta, this.currentPenState);
+	}
+
+	/**
+	 * Return Turtle to last saved state and remove ("pop") that state from the
+	 * stack.
+	 * 
+	 */
+	public void pop() {
+		if (!pushHistory.isEmpty()) {
+			this.currentPenState = penStates.PENUP;
+			this.currentX = this.pushHistory.topX();
+			this.currentY = this.pushHistory.topY();
+			this.currentTheta = this.pushHistory.topTheta();
+			this.addHistoryLine();
+			this.currentPenState = this.pushHistory.topPenState();
+			this.pushHistory.pop();
+		} else {
+			System.out.println("ERROR: tried to pop without a push");
+		}
+	}
+
+	/**
+	 * Calculate Turtle's distance from a point.
+	 * 
+	 * @param x
+	 *            x coordinate of point.
+	 * 
+	 * @param y
+	 *            y coordinate of point.
+	 * 
+	 */
+	public float distanceFromPoint(float x, float y) {
+		float d = (float) Math.sqrt(((currentX - x) * (currentX - x)) + ((currentY - y) * (currentY - y)));
+		return d;
+	}
+
+	/**
+	 * Calculate the distance from a point to the nearest line the Turtle has
+	 * drawn.
+	 * 
+	 * @param x
+	 *            x coordinate of point.
+	 * 
+	 * @param y
+	 *            y coordinate of point.
+	 * 
+	 * @return distance, or Float.POSITIVE_INFINITY if nothing has been drawn
+	 */
+	public float distanceFromPath(float x, float y) {
+		updateHistoryTree();
+		int[] nearest = historyTree.nearest(x, y, 1);
+		if (nearest.length == 0)
+			return Float.POSITIVE_INFINITY;
+		return (float) Math.sqrt(tRTree.lineDistanceSq(commandHistory, nearest[0], x, y));
+	}
+
+	/**
+	 * Find the drawn lines that lie at least partly inside a rectangle.
+	 * 
+	 * @param x0
+	 *            x coordinate of one corner.
+	 * 
+	 * @param y0
+	 *            y coordinate of one corner.
+	 * 
+	 * @param x1
+	 *            x coordinate of the opposite corner.
+	 * 
+	 * @param y1
+	 *            y coordinate of the opposite corner.
+	 * 
+	 * @return lines inside the rectangle
+	 */
+	public tLine[] linesInRect(float x0, float y0, float x1, float y1) {
+		float minX = Math.min(x0, x1);
+		float minY = Math.min(y0, y1);
+		float maxX = Math.max(x0, x1);
+		float maxY = Math.max(y0, y1);
+		updateHistoryTree();
+		historyTree.search(minX, minY, maxX, maxY);
+		int count = 0;
+		for (int k = 0; k < historyTree.resultCount; k++) {
+			int i = historyTree.results[k];
+			if (tRTree.lineInRect(commandHistory, i, minX, minY, maxX, maxY))
+				historyTree.results[count++] = i;
+		}
+		return historyLines(historyTree.results, count);
+	}
+
+	/**
+	 * Find the drawn lines that come within a given distance of a point.
+	 * 
+	 * @param x
+	 *            x coordinate of point.
+	 * 
+	 * @param y
+	 *            y coordinate of point.
+	 * 
+	 * @param radius
+	 *            search distance.
+	 * 
+	 * @return lines within radius of the point
+	 */
+	public tLine[] linesNearPoint(float x, float y, float radius) {
+		updateHistoryTree();
+		historyTree.search(x - radius, y - radius, x + radius, y + radius);
+		int count = 0;
+		double radiusSq = (double) radius * radius;
+		for (int k = 0; k < historyTree.resultCount; k++) {
+			int i = historyTree.results[k];
+			if (tRTree.lineDistanceSq(commandHistory, i, x, y) <= radiusSq)
+				historyTree.results[count++] = i;
+		}
+		return historyLines(historyTree.results, count);
+	}
+
+	/**
+	 * Find the k drawn lines nearest to a point, nearest first.
+	 * 
+	 * @param x
+	 *            x coordinate of point.
+	 * 
+	 * @param y
+	 *            y coordinate of point.
+	 * 
+	 * @param k
+	 *            number of lines to find.
+	 * 
+	 * @return up to k lines, sorted by distance
+	 */
+	public tLine[] nearestLines(float x, float y, int k) {
+		updateHistoryTree();
+		int[] nearest = historyTree.nearest(x, y, k);
+		return historyLines(nearest, nearest.length);
+	}
+
+	/**
+	 * Find every place where the Turtle's path crosses or touches itself.
+	 * PENUP moves are ignored, and lines that only share an endpoint (like
+	 * consecutive moves) don't count, the same as for closeToPath. Takes
+	 * O((n + k) log n) time for n lines and k crossings, however the lines
+	 * are laid out.
+	 * 
+	 * @return crossings, one per pair of intersecting lines
+	 */
+	public tCrossing[] selfIntersections() {
+		return tSweepLine.report(commandHistory, canvas);
+	}
+
+	// bring historyTree up to date: bulk load the whole history the first
+	// time (or after it shrinks), then insert new drawn lines one by one
+	private void updateHistoryTree() {
+		int numLines = commandHistory.size();
+		if (historyTree == null || numLines < historyTreeLength) {
+			int[] drawn = new int[numLines];
+			int count = 0;
+			for (int i = 0; i < numLines; i++) {
+				if (commandHistory.isDrawn(i))
+					drawn[count++] = i;
+			}
+			historyTree = tRTree.bulkLoad(commandHistory, drawn, count);
+		} else {
+			for (int i = historyTreeLength; i < numLines; i++) {
+				if (commandHistory.isDrawn(i))
+					historyTree.insert(i);
+			}
+		}
+		historyTreeLength = numLines;
+	}
+
+	private tLine[] historyLines(int[] indices, int count) {
+		tLine[] lines = new tLine[count];
+		for (int k = 0; k < count; k++) {
+			lines[k] = commandHistory.get(indices[k], canvas);
+		}
+		return lines;
+	}
+
+	/**
+	 * Answer question: if Turtle moves forward a distance will it cross its
+	 * previous path.
+	 * 
+	 * @param distance
+	 *            distance to move forward.
+	 * 
+	 */
+	public boolean closeToPath(float distance) {
+		updateHeadingVector();
+		float nextX = this.currentX + (float) (headingSin * distance);
+		float nextY = this.currentY + (float) (headingCos * distance);
+		int numLines = commandHistory.size();
+		updatePathGrid();
+		if (pathGrid.query(this.currentX, this.currentY, nextX, nextY, numLines)) {
+			// only lines sharing a grid cell with the move can touch it
+			for (int k = 0; k < pathGrid.resultCount; k++) {
+				if (historyLineIntersects(pathGrid.results[k], nextX, nextY))
+					return true;
+			}
+			return false;
+		}
+		for (int i = 0; i < numLines; i++) {
+			if (commandHistory.state[i] != penStates.PENUP) {
+				if (historyLineIntersects(i, nextX, nextY)) {
+					// println(distanceFromPoint(commandHistory[i].p0.x,
+					// commandHistory[i].p0.y));
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	// does history line i intersect the move from the current position to
+	// (nextX, nextY), as tLine.intersects would decide
+	private boolean historyLineIntersects(int i, float nextX, float nextY) {
+		return tLine.intersects(commandHistory.x0[i], commandHistory.y0[i], commandHistory.x1[i],
+				commandHistory.y1[i], commandHistory.state[i], this.currentX, this.currentY, nextX, nextY,
+				this.currentPenState);
+	}
+
+	/**
+	 * Set the cell size of the grid closeToPath uses to find nearby lines.
+	 * Roughly the length of a typical move works well. Use 0 (the default) to
+	 * let the Turtle pick a size from the average length of its moves.
+	 * 
+	 * @param cellSize
+	 *            grid cell size in pixels, or 0 for automatic
+	 * 
+	 */
+	public void setPathGridCellSize(float cellSize) {
+		pathGridCellSize = cellSize > 0 ? cellSize : 0;
+		pathGrid = null;
+	}
+
+	// file any new history lines in pathGrid, (re)building it when it is
+	// missing, out of date, or its automatic cell size no longer fits
+	private void updatePathGrid() {
+		int numLines = commandHistory.size();
+		if (pathGrid != null && numLines < pathGridLength)
+			pathGrid = null;
+		if (pathGrid != null && pathGridCellSize == 0 && numLines >= 2 * pathGridTunedLength) {
+			float ratio = autoPathGridCellSize() / pathGrid.getCellSize();
+			if (ratio > 2 | ratio < 0.5f)
+				pathGrid = null;
+			else
+				pathGridTunedLength = numLines;
+		}
+		if (pathGrid == null) {
+			pathGrid = new tSpatialGrid(pathGridCellSize > 0 ? pathGridCellSize : autoPathGridCellSize());
+			pathGridLength = 0;
+			pathGridTunedLength = Math.max(numLines, 64);
+		}
+		for (int i = pathGridLength; i < numLines; i++) {
+			if (commandHistory.state[i] != penStates.PENUP)
+				pathGrid.insert(i, commandHistory.x0[i], commandHistory.y0[i], commandHistory.x1[i],
+						commandHistory.y1[i]);
+		}
+		pathGridLength = numLines;
+	}
+
+	// twice the average length of the drawn history lines, 10 if there are none
+	private float autoPathGridCellSize() {
+		double total = 0;
+		int count = 0;
+		int numLines = commandHistory.size();
+		for (int i = 0; i < numLines; i++) {
+			if (commandHistory.state[i] == penStates.PENUP)
+				continue;
+			double dx = commandHistory.x1[i] - commandHistory.x0[i];
+			double dy = commandHistory.y1[i] - commandHistory.y0[i];
+			double length = Math.sqrt(dx * dx + dy * dy);
+			if (length > 0) {
+				total += length;
+				count++;
+			}
+		}
+		if (count == 0)
+			return 10;
+		return (float) Math.max(2 * total / count, 1e-3);
+	}
+
+	/**
+	 * Move Turtle forward with wrap around. If Turtle "falls off" one edge of
+	 * the screen, reappear on opposite edge.
+	 * 
+	 * @param distance
+	 *            number of steps (maps to pixels) to move.
+	 */
+	private void forwardWrapAround(double distance) {
+		float x, y, nextX, nextY, nextX1, nextY1, d;
+		boolean flag = false;
+		int currentPenStateTemp = this.getPenState();
+		
+		//generate coordinates for entire line
+		updateHeadingVector();
+		x = currentX + (float) (headingSin * distance);
+		y = currentY - (float) (headingCos * distance);
+		nextX = x;
+		nextY = y;
+		nextX1 = x;
+		nextY1 = y;
+		d=0;
+		
+		//if line falls off
+		if ( ((canvas.getWidth() - x) < 0  | (canvas.getWidth() - x)  > canvas.getWidth()) |
+			 ((canvas.getHeight() - y) < 0 | (canvas.getHeight() - y) > canvas.getHeight()))
+		{
+			// get coordinates for edges of page
+			//falls off right edge
+			if (canvas.getWidth() - x < 0) {
+				nextY = currentY - (float) (1/Math.tan(Math.toRadians(currentTheta)) * (canvas.getWidth() -currentX));
+				//if line falls of y before x
+				if ((canvas.getHeight() - nextY) < 0 | (canvas.getHeight() - nextY) > canvas.getHeight())
+				{
+					this.forwardWrapAroundY(distance);
+					return;
+				}
+				//falls off x first
+				else
+				{
+					nextX = canvas.getWidth();
+					nextX1 = 0;
+					
+				}
+			} 
+			//falls off left edge
+			else if ((canvas.getWidth() - x)  > canvas.getWidth()) {
+				nextY = currentY + (float) (1/Math.tan(Math.toRadians(currentTheta)) * (currentX));
+				//if line falls of y before x
+				if ((canvas.getHeight() - nextY) < 0 | (canvas.getHeight() - nextY) > canvas.getHeight())
+				{
+					this.forwardWrapAroundY(distance);
+					return;
+				}
+				//falls off x first
+				else
+				{
+					nextX = 0;
+					nextX1 = canvas.getWidth();
+				}
+			}
+			//falls off y only
+			else
+			{
+				this.forwardWrapAroundY(distance);
+				return;
+			}
+			//draw lines for forward steps to edge of page + wrap around & calculate next distance to travel
+			d = (float)Math.sqrt((nextX-currentX)*(nextX-currentX)+(nextY-currentY)*(nextY-currentY));
+			nextY1 = nextY;
+			// line to edge of page
+			currentX = nextX;
+			currentY = nextY;
+			this.addHistoryLine();
+			this.drawLastHistoryLine();
+			// jump to wrap-around edge, PENUP
+			this.currentPenState = penStates.PENUP;
+			currentX = nextX1;
+			currentY = nextY1;
+			this.addHistoryLine();
+			this.currentPenState = currentPenStateTemp;
+			
+			//continue moving next distance
+			if (Math.abs(d)<Math.abs(distance))
+			{
+				if (distance>0)
+					this.forwardWrapAround(distance-d);
+				else
+					this.forwardWrapAround(-(-distance-d));
+			}
+			else
+			{
+				System.out.println("error. distance to edge is larger than total distance: " +d);
+				System.out.println("nextXY: (" +nextX +", " +nextY +") nextXY1: (" +nextX1 +", " +nextY1 +")");
+			}
+		}
+
+		//line doesn't fall off
+		else {
+			currentX = x;
+			currentY = y;
+			this.addHistoryLine();
+			this.drawLastHistoryLine();
+		}
+		
+	}
+
+	private void forwardWrapAroundY (double distance) {
+		float x, y, nextX, nextY, nextX1, nextY1, d;
+		boolean flag = false;
+		int currentPenStateTemp = this.getPenState();
+		
+		//generate coordinates for entire line
+		updateHeadingVector();
+		x = currentX + (float) (headingSin * distance);
+		y = currentY - (float) (headingCos * distance);
+		nextX = x;
+		nextY = y;
+		nextX1 = x;
+		nextY1 = y;
+		
+		if ((canvas.getHeight() - y) < 0 | (canvas.getHeight() - y) > canvas.getHeight()) {
+			flag = true;
+			// get coordinates for edges of page
+			if (canvas.getHeight() - y < 0) {
+				nextX = currentX - (float) (Math.tan(Math.toRadians(currentTheta)) * (canvas.getHeight() -currentY));
+				nextY = canvas.getHeight();
+				nextY1 = 0;
+			} else {
+				nextX = currentX + (float) (Math.tan(Math.toRadians(currentTheta)) * (currentY));
+				nextY = 0;
+				nextY1 = canvas.getHeight();
+			}
+			nextX1 = nextX;
+
+			d = (float)Math.sqrt((nextX-currentX)*(nextX-currentX)+(nextY-currentY)*(nextY-currentY));
+			// line to edge of page
+			currentX = nextX;
+			currentY = nextY;
+			this.addHistoryLine();
+			this.drawLastHistoryLine();
+			// jump to wrap-around edge, PENUP
+			this.currentPenState = penStates.PENUP;
+			currentX = nextX1;
+			currentY = nextY1;
+			this.addHistoryLine();
+			this.currentPenState = currentPenStateTemp;
+
+			if (Math.abs(d)<Math.abs(distance))
+			{
+				if (distance>0)
+					this.forwardWrapAround(distance-d);
+				else
+					this.forwardWrapAround(-(-distance-d));
+			}
+			else
+			{
+				System.out.println("error in forwardWrapAroundY. distance to edge is larger than total distance. d: " +d);
+				System.out.println("nextXY: (" +nextX +", " +nextY +") nextXY1: (" +nextX1 +", " +nextY1 +")");
+			}
+		}
+		else {
+			System.out.println("Error. Shouldn't ever get here.");
+		}
+	}
+
+	/**
+	 * Get the X coordinate of Turtle's current position.
+	 * 
+	 * @return X coordiante
+	 */
+	public float getX() {
+		return currentX;
+	}
+
+	/**
+	 * Get the Y coordinate of Turtle's current position.
+	 * 
+	 * @return Y coordiante
+	 */
+	public float getY() {
+		return currentY;
+	}
+
+	/**
+	 * Get the Turtle's current heading (angle).
+	 * 
+	 * @return angle
+	 */
+	public float getHeading() {
+		return currentTheta;
+	}
+
+	/**
+	 * Get the Turtle's current pen state.
+	 * 
+	 * @return pen state
+	 */
+	public int getPenState() {
+		return currentPenState;
+	}
+
+	private int getLength() {
+		return commandHistory.size();
+	}
+
+	/**
+	 * Set the X coordinate of Turtle's current position.
+	 * 
+	 * @param x
+	 *            X coordinate
+	 * 
+	 */
+	public void setX(float x) {
+		currentX = x;
+		this.addHistoryLine();
+	}
+
+	/**
+	 * Set the Y coordinate of Turtle's current position.
+	 * 
+	 * @param y
+	 *            Y coordinate
+	 * 
+	 */
+	public void setY(float y) {
+		currentY = y;
+		this.addHistoryLine();
+	}
+
+	/**
+	 * Set the Turtle's current heading (angle).
+	 * 
+	 * @param theta
+	 *            angle input, in degrees
+	 * 
+	 */
+	public void setHeading(float theta) {
+		currentTheta = theta;
+	}
+
+	/**
+	 * Set the Turtle's current pen state. Use discouraged. Use penUp() and
+	 * penDown() instead.
+	 * 
+	 * @param penStateInput
+	 *            PENUP=1, PENDOWN=0, PENFAT=3
+	 * 
+	 */
+	public void setPenState(int penStateInput) {
+		currentPenState = penStateInput;
+	}
+
+	/**
+	 * Turn wrap-around on and off. When wrap==TRUE, turtle will never "fall off" the edge of the page.
+	 * Turtle will reappear on opposite edge when she leave screen.
+	 * 
+	 * @param wrap
+	 *            
+	 * 
+	 */
+	public void setWrapAround(boolean wrap) {
+		wrapAround = wrap;
+	}
+
+	/**
+	 * Turn fixed-point stepping on and off. When fixed==TRUE, forward, back,
+	 * left and right keep the Turtle's position in 64-bit integers and its
+	 * heading in whole 1/65536ths of a degree, using lookup tables instead of
+	 * float trigonometry, so the same moves always land on exactly the same
+	 * points, whatever machine or thread runs them. The heading then stays
+	 * between 0 and 360. Moves with wrap-around on still use float stepping.
+	 * 
+	 * @param fixed
+	 * 
+	 */
+	public void setFixedPoint(boolean fixed) {
+		fixedPoint = fixed ? new tFixedPoint(fixedPointBits) : null;
+	}
+
+	/**
+	 * Set how many bits of the fixed-point position are after the binary
+	 * point, from 0 to 32 (default 16). More bits keep more precision but
+	 * leave less room before coordinates overflow.
+	 * 
+	 * @param bits
+	 *            number of fractional bits
+	 * 
+	 */
+	public void setFixedPointBits(int bits) {
+		if (bits < 0 || bits > tFixedPoint.MAX_BITS) {
+			System.out.println("ERROR: fixed-point bits must be between 0 and " + tFixedPoint.MAX_BITS);
+			return;
+		}
+		fixedPointBits = bits;
+		if (fixedPoint != null)
+			fixedPoint = new tFixedPoint(bits);
+	}
+
+	/**
+	 * Jump Turtle to input point.
+	 * 
+	 * @param xInput
+	 *            X coordinate of point
+	 * 
+	 * @param yInput
+	 *            Y coordinate of point
+	 * 
+	 */
+	public void goToPoint(float xInput, float yInput) {
+		currentX = xInput;
+		currentY = yInput;
+		this.addHistoryLine();
+		this.drawLastHistoryLine();
+	}
+
+	
+	public void curveToPoint2(float xInput, float yInput, float angleInput) {
+		float angleDifference = this.getHeading()-angleInput;
+		float xDifference = this.getX()-xInput;
+		float yDifference = this.getY()-yInput;
+		
+		//target point is below current point
+		if (yDifference>0)
+		{
+			this.forward(yDifference);
+			this.curveToPoint(xInput,yInput);
+		}
+		//target point above current point
+		else 
+		{
+			this.curveToPoint(xInput,yInput+yDifference);
+			this.setHeading(angleInput);
+			this.forward(-yDifference);
+		}
+		this.goToPoint(xInput, yInput);
+	}
+	
+	public void curveToPoint(float xInput, float yInput) {
+		float angle;
+		tPoint currentPoint;
+		tPoint finalVectorPoint;
+		tLine finalVector;
+		float arcLength;
+		float angleStep;
+		float iterations = 100;
+
+		currentPoint = new tPoint(this.currentX, this.currentY);
+		finalVectorPoint = new tPoint(xInput, yInput);
+		finalVector = new tLine(currentPoint, finalVectorPoint, this.currentTheta, this.currentPenState, this.canvas);
+
+		angle = angleToPoint(xInput, yInput);
+		if (angle == 0 | angle == 180) {
+			arcLength = finalVector.magnitude();
+			angleStep = 0;
+			if (angle == 180) // weird special case, awkward hack
+				this.right(180);
+		} else {
+			arcLength = finalVector.magnitude()
+					* (float) (Math.PI * (angle * 2) / (360 * Math.sin(Math.toRadians(angle))));
+			angleStep = angle * 2 / iterations;
+		}
+		float stepSize = arcLength / iterations;
+		for (int i = 0; i < iterations; i++) {
+			this.forward(stepSize);
+			this.right(angleStep);
+		}
+	}
+
+	float angleToPoint(float xInput, float yInput) {
+		float angle;
+		float nextX, nextY;
+		float currentDX, currentDY, finalDX, finalDY;
+		float dotProduct, currentMagnitude, finalMagnitude;
+
+		// current heading vector, 10 steps long, and vector to the input point
+		updateHeadingVector();
+		nextX = (float) (this.currentX + (headingSin * 10));
+		nextY = (float) (this.currentY + (headingCos * 10));
+		currentDX = nextX - this.currentX;
+		currentDY = nextY - this.currentY;
+		finalDX = xInput - this.currentX;
+		finalDY = yInput - this.currentY;
+		dotProduct = (currentDX * finalDX) + (currentDY * finalDY);
+		currentMagnitude = (float) Math.sqrt(currentDX * currentDX + currentDY * currentDY);
+		finalMagnitude = (float) Math.sqrt(finalDX * finalDX + finalDY * finalDY);
+
+		// calculate angle magnitude
+		angle = (float) Math.toDegrees(Math.acos(dotProduct / (currentMagnitude * finalMagnitude)));
+		if (Float.isNaN(angle)) {
+			// angle is eigher 180 or 0
+			angle = 0;
+		}
+		// calculate angle direction (is point to left or right of current
+		// heading)
+		if (tGeometry.orientation(this.currentX, this.currentY, nextX, nextY, xInput, yInput) > 0) {
+			angle = -angle;
+		}
+
+		return angle;
+	}
+
+	// refresh the cached unit heading vector if currentTheta has changed since
+	// it was last computed (currentTheta is public, so compare values rather
+	// than relying on right/left/setHeading to invalidate the cache)
+	void updateHeadingVector() {
+		if (currentTheta != headingTheta) {
+			headingSin = tTrig.sin(currentTheta);
+			headingCos = tTrig.cos(currentTheta);
+			headingTheta = currentTheta;
+		}
+	}
+
+	private void addHistoryLine() {
+		int historyLength = this.getLength();
+		if (historyLength > 0) {
+			commandHistory.add(commandHistory.x1[historyLength - 1], commandHistory.y1[historyLength - 1],
+					this.currentX, this.currentY, this.currentTheta, this.currentPenState);
+		} else {
+			commandHistory.add(this.currentX, this.currentY, this.currentX, this.currentY, this.currentTheta,
+					this.currentPenState);
+		}
+	}
+
+	// draw the most recently added history line, if the pen was down
+	private void drawLastHistoryLine() {
+		int i = commandHistory.size() - 1;
+		if (commandHistory.isDrawn(i))
+		{
+			canvas.line(commandHistory.x0[i], commandHistory.y0[i], commandHistory.x1[i], commandHistory.y1[i]);
+		}
+	}
+
+	private void deleteHistoryLine() {
+		commandHistory.removeLast();
+		int i = commandHistory.size() - 1;
+		if (i >= 0) {
+			currentX = commandHistory.x1[i];
+			currentY = commandHistory.y1[i];
+			currentTheta = commandHistory.theta[i];
+			currentPenState = commandHistory.state[i];
+		}
+	}
+
+	//useful for debugging
+	public void printTurtleHistory() {
+		int numLines = commandHistory.size();
+		for (int i = 0; i < numLines; i++) {
+			if (commandHistory.state[i] == penStates.PENUP)
+				System.out.print("PU ");
+			commandHistory.printLine(i);
+		}
+		System.out.println("");
+	}
+	
+
+	/**
+	 * Delete the Turtle's previous history and clear all previous drawing.
+	 * 
+	 */
+	public void clearTurtleHistory() {
+		this.commandHistory.clear();
+		this.pathGrid = null;
+		this.historyTree = null;
+		this.addHistoryLine();
+	}
+
+	/**
+	 * Tell the Turtle to perform actions given by a list of instructions.
+	 * @param tInstr The list of instructions to be executed, as a TurtleInstructions object.
+	 */
+	public void instruct(TurtleInstructions tInstr) {
+		// every FORWARD/BACK adds a history line; reserve room up front
+		long numLines = commandHistory.size() + tInstr.lineCount();
+		if (numLines < Integer.MAX_VALUE - 8)
+			commandHistory.ensureCapacity((int) numLines);
+		instruct(tInstr.stream());
+	}
+
+	/**
+	 * Tell the Turtle to run a compiled program. Compile a TurtleInstructions
+	 * once with {@link TurtleInstructions#compile()} to run it many times.
+	 * @param program The program to be executed.
+	 */
+	public void instruct(TurtleProgram program) {
+		byte[] ops = program.ops;
+		float[] amounts = program.amounts;
+		int numMoves = program.length;
+		// every FORWARD/BACK adds a history line; reserve room up front
+		int numLines = 0;
+		for (int i = 0; i < numMoves; i++) {
+			if (ops[i] == TurtleProgram.FORWARD | ops[i] == TurtleProgram.BACK)
+				numLines++;
+		}
+		commandHistory.ensureCapacity(commandHistory.size() + numLines);
+		for (int i = 0; i < numMoves; i++) {
+			switch (ops[i]) {
+				case TurtleProgram.FORWARD:
+					forward(amounts[i]);
+					break;
+				case TurtleProgram.BACK:
+					back(amounts[i]);
+					break;
+				case TurtleProgram.LEFT:
+					left(amounts[i]);
+					break;
+				case TurtleProgram.RIGHT:
+					right(amounts[i]);
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Tell the Turtle to perform a lazily expanded fractal, generating its
+	 * moves as they are performed.
+	 * @param fractal The fractal to be drawn.
+	 */
+	public void instruct(TurtleFractal fractal) {
+		instruct(fractal.stream());
+	}
+
+	/**
+	 * Tell the Turtle to perform the moves saved in a file, reading them
+	 * straight from the memory-mapped file as they are performed.
+	 * @param file The file of moves to be executed.
+	 */
+	public void instruct(TurtleFile file) {
+		instruct(file.stream());
+	}
+
+	/**
+	 * Tell the Turtle to perform every move from a stream of moves.
+	 * @param moves The stream of moves to be executed.
+	 */
+	public void instruct(TurtleMoveStream moves) {
+		while (moves.next()) {
+			step(moves.getOp(), moves.getAmount());
+		}
+	}
+
+	/**
+	 * Tell the Turtle to perform every move an Iterator returns, one at a
+	 * time, so the moves never have to be held in memory together.
+	 * @param moves The moves to be executed.
+	 */
+	public void instruct(Iterator<TurtleMove> moves) {
+		while (moves.hasNext()) {
+			TurtleMove tm = moves.next();
+			step(tm.opcode(), tm.amount);
+		}
+	}
+
+	/**
+	 * Tell the Turtle to perform every move a Spliterator returns, in
+	 * encounter order.
+	 * @param moves The moves to be executed.
+	 */
+	public void instruct(Spliterator<TurtleMove> moves) {
+		moves.forEachRemaining(new Consumer<TurtleMove>() {
+			public void accept(TurtleMove tm) {
+				step(tm.opcode(), tm.amount);
+			}
+		});
+	}
+
+	/**
+	 * Tell the Turtle to perform moves produced by a generator callback,
+	 * which is called repeatedly until it returns null.
+	 * @param generator Returns the next move, or null when there are no more.
+	 */
+	public void instruct(Supplier<TurtleMove> generator) {
+		TurtleMove tm = generator.get();
+		while (tm != null) {
+			step(tm.opcode(), tm.amount);
+			tm = generator.get();
+		}
+	}
+
+	// perform a single move given by its TurtleProgram opcode
+	private void step(byte op, float amount) {
+		switch (op) {
+			case TurtleProgram.FORWARD:
+				forward(amount);
+				break;
+			case TurtleProgram.BACK:
+				back(amount);
+				break;
+			case TurtleProgram.LEFT:
+				left(amount);
+				break;
+			case TurtleProgram.RIGHT:
+				right(amount);
+				break;
+		}
+	}
+
+	private void welcome() {
+		System.out.println("Turtle 1.0.0 by Leah Buechley http://leahbuechley.com");
+	}
+
+}
@@ -0,0 +1,212 @@
+package Turtle;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.Deflater;
+
+/**
+ * TurtleFile class, a sequence of moves saved in a compact binary file.
+ * Files are written with {@link #write(TurtleInstructions, String, boolean)}
+ * and opened with {@link #open(String)}; the moves are then read straight
+ * from the memory-mapped file by {@link #stream()}, so even very long
+ * programs can be run without loading them into memory first.
+ * <p>
+ * A file starts with a 24-byte header: the magic number "TRTL", the format
+ * version (short), flags (short, bit 0 set if the blocks are compressed),
+ * the number of moves (long), the number of moves per block (int, at most
+ * 65536) and the number of blocks (int). Each block follows as its number
+ * of moves (int), the number of bytes stored for it (int), and then the
+ * opcodes of its moves, one byte each, followed by their amounts as floats,
+ * deflated if the file is compressed. All numbers are big-endian.
+ * @author Franklin Pezzuti Dyer
+ */
+public class TurtleFile {
+
+    /** The version of the format written by this class. */
+    public static final short VERSION = 1;
+
+    static final int MAGIC = 0x5452544C; // "TRTL"
+    static final int HEADER_SIZE = 24;
+    static final int BLOCK_HEADER_SIZE = 8;
+    static final int FLAG_COMPRESSED = 1;
+    static final int BLOCK_MOVES = 1 << 16;
+
+    final Path path;
+    final long fileSize;
+    final long moveCount;
+    final int blockMoves;
+    final int blockCount;
+    final boolean compressed;
+
+    private TurtleFile(Path pathInput, long fileSizeInput, ByteBuffer header) throws IOException {
+        path = pathInput;
+        fileSize = fileSizeInput;
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException(path + " is not a Turtle file");
+        }
+        short version = header.getShort(4);
+        if (version < 1 || version > VERSION) {
+            throw new IOException(path + " has unsupported format version " + version);
+        }
+        compressed = (header.getShort(6) & FLAG_COMPRESSED) != 0;
+        moveCount = header.getLong(8);
+        blockMoves = header.getInt(16);
+        blockCount = header.getInt(20);
+        // this version always writes BLOCK_MOVES; anything larger would only make
+        // readers allocate huge buffers for a damaged file
+        if (moveCount < 0 || blockMoves <= 0 || blockMoves > BLOCK_MOVES || blockCount < 0
+                || (long)blockCount * blockMoves < moveCount) {
+            throw new IOException(path + " has a corrupt header");
+        }
+    }
+
+    /**
+     * Opens a file written by {@link #write(TurtleInstructions, String, boolean)},
+     * reading only its header.
+     * @param pathName The path of the file.
+     * @return The opened file.
+     * @throws IOException If the file can't be read or is not a Turtle file.
+     */
+    public static TurtleFile open(String pathName) throws IOException {
+        Path p = Paths.get(pathName);
+        try (FileChannel channel = FileChannel.open(p, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException(pathName + " is not a Turtle file");
+            }
+            return new TurtleFile(p, size, channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE));
+        }
+    }
+
+    /**
+     * Returns the number of moves in the file.
+     * @return The number of moves.
+     */
+    public long size() {
+        return moveCount;
+    }
+
+    /**
+     * Returns whether the moves in the file are compressed.
+     * @return Whether the file is compressed.
+     */
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * Returns a stream reading the moves from the memory-mapped file.
+     * Uncompressed files are read in place; compressed files are inflated
+     * one block at a time into a buffer reused for every block.
+     * Each call returns a new, independent stream. The stream throws an
+     * UncheckedIOException if the file turns out to be damaged or can't be read.
+     * @return A stream of the file's moves.
+     */
+    public TurtleMoveStream stream() {
+        return new tMappedStream(this);
+    }
+
+    /**
+     * Reads every move of the file into a new TurtleInstructions.
+     * @return The moves of the file.
+     */
+    public TurtleInstructions load() {
+        TurtleInstructions ti = new TurtleInstructions();
+        TurtleMoveStream moves = stream();
+        while (moves.next()) {
+            ti.add(moves.getOp(), moves.getAmount());
+        }
+        return ti;
+    }
+
+    /**
+     * Writes a sequence of moves to an uncompressed file, replacing the file if it exists.
+     * @param ti The moves to be written.
+     * @param pathName The path of the file.
+     * @throws IOException If the file can't be written.
+     */
+    public static void write(TurtleInstructions ti, String pathName) throws IOException {
+        write(ti, pathName, false);
+    }
+
+    /**
+     * Writes a sequence of moves to a file, replacing the file if it exists.
+     * Repeated sections are written out in full, one move at a time, so they
+     * are never expanded in memory.
+     * @param ti The moves to be written.
+     * @param pathName The path of the file.
+     * @param compress Whether to deflate the blocks of moves.
+     * @throws IOException If the file can't be written.
+     */
+    public static void write(TurtleInstructions ti, String pathName, boolean compress) throws IOException {
+        long moveCount = ti.size();
+        long blockCount = (moveCount + BLOCK_MOVES - 1) / BLOCK_MOVES;
+        if (blockCount > Integer.MAX_VALUE) {
+            throw new IOException("too many moves to write: " + moveCount);
+        }
+        byte[] ops = new byte[BLOCK_MOVES];
+        float[] amounts = new float[BLOCK_MOVES];
+        ByteBuffer block = ByteBuffer.allocate(5 * BLOCK_MOVES);
+        byte[] deflated = compress ? new byte[5 * BLOCK_MOVES + 1024] : null;
+        Deflater deflater = compress ? new Deflater() : null;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(pathName), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(compress ? FLAG_COMPRESSED : 0);
+            out.writeLong(moveCount);
+            out.writeInt(BLOCK_MOVES);
+            out.writeInt((int)blockCount);
+            TurtleMoveStream moves = ti.stream();
+            int n = 0;
+            while (moves.next()) {
+                ops[n] = moves.getOp();
+                amounts[n] = moves.getAmount();
+                if (++n == BLOCK_MOVES) {
+                    writeBlock(out, ops, amounts, n, block, deflater, deflated);
+                    n = 0;
+                }
+            }
+            if (n > 0) {
+                writeBlock(out, ops, amounts, n, block, deflater, deflated);
+            }
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+    }
+
+    private static void writeBlock(DataOutputStream out, byte[] ops, float[] amounts, int n,
+            ByteBuffer block, Deflater deflater, byte[] deflated) throws IOException {
+        block.clear();
+        block.put(ops, 0, n);
+        for (int i = 0; i < n; i++) {
+            block.putFloat(amounts[i]);
+        }
+        out.writeInt(n);
+        if (deflater == null) {
+            out.writeInt(block.position());
+            out.write(block.array(), 0, block.position());
+            return;
+        }
+        deflater.reset();
+        deflater.setInput(block.array(), 0, block.position());
+        deflater.finish();
+        int stored = 0;
+        while (!deflater.finished()) {
+            stored += deflater.deflate(deflated, stored, deflated.length - stored);
+            if (stored == deflated.length && !deflater.finished()) {
+                throw new IOException("block did not fit its deflate buffer");
+            }
+        }
+        out.writeInt(stored);
+        out.write(deflated, 0, stored);
+    }
+}
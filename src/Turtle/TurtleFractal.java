@@ -0,0 +1,57 @@
+package Turtle;
+
+import java.util.Iterator;
+
+/**
+ * TurtleFractal class, a lazily expanded version of
+ * {@link TurtleInstructions#fractalize(TurtleInstructions, int)}.
+ * The fractal is kept in the same shared form fractalize builds, where each
+ * level of substitution is stored once and every FORWARD refers to a scaled
+ * view of the level below, and the moves are only generated as they are read.
+ * Memory use grows with the size of the base sequence and the number of
+ * substitution levels rather than with the number of moves, and the moves are
+ * exactly the ones fractalize would produce.
+ * @author Franklin Pezzuti Dyer
+ */
+public class TurtleFractal implements Iterable<TurtleMove> {
+
+    private final tMoveNode moves; // null if there are none
+
+    /**
+     * Constructs a lazy fractal from a starting sequence of moves,
+     * a sequence to substitute for each FORWARD move, and a number of substitution levels.
+     * Later changes to either sequence do not affect the fractal.
+     * @param baseInput The starting sequence of moves.
+     * @param templateInput The sequence of moves to be substituted.
+     * @param n The number of iterations of substitution.
+     */
+    public TurtleFractal(TurtleInstructions baseInput, TurtleInstructions templateInput, int n) {
+        tMoveNode base = baseInput.root();
+        if (n <= 0 || base == null) {
+            moves = base;
+        } else {
+            tMoveNode level = tFractalCache.shared.level(templateInput.compile(), (float)templateInput.net().length(), n);
+            moves = TurtleInstructions.substitute(base, level);
+        }
+    }
+
+    /**
+     * Returns a stream over the fully expanded sequence of moves.
+     * Each call returns a new, independent stream.
+     * @return A stream of the fractal's moves.
+     */
+    public TurtleMoveStream stream() {
+        return new tMoveCursor(moves);
+    }
+
+    /**
+     * Returns an iterator over the fully expanded sequence of moves,
+     * creating a new TurtleMove for each one.
+     * Prefer {@link #stream()} where the moves don't need to be objects.
+     * @return An iterator over the fractal's moves.
+     */
+    public Iterator<TurtleMove> iterator() {
+        return new tMoveIterator(stream());
+    }
+
+}
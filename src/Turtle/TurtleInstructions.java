@@ -1,8 +1,14 @@
 package Turtle;
 
-import processing.core.*;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * TurtleInstructions class, storing a list of Turtle-executable instructions.
@@ -12,18 +18,27 @@ import java.util.Collections;
  */
 public class TurtleInstructions {
 
-    public ArrayList<TurtleMove> instructions;
-    // Assuming the Turtle starts at the origin, pointing east...
-    float netX = 0;
-    float netY = 0;
-    float netHeading = 90;
+    /**
+     * The moves, in order, as a list. Repeated sections are expanded as the
+     * list is read. Moves can be added, replaced and removed through the list
+     * as well as with the methods of this class, but each move read from it
+     * is a new copy, so use set() rather than changing a move that was read.
+     */
+    public final List<TurtleMove> instructions;
+
+    // the moves are root followed by tail; root is a rope of nodes that never change
+    // and may be shared with other TurtleInstructions, tail is only ever appended to
+    private tMoveNode root;
+    private tMoveLeaf tail;
 
     /**
      * Basic constructor for TurtleInstructions.
      * Creates an empty list of TurtleMoves.
      */
     public TurtleInstructions() {
-        instructions = new ArrayList<TurtleMove>();
+        instructions = new MoveList();
+        root = null;
+        tail = new tMoveLeaf();
     }
 
     /**
@@ -31,10 +46,7 @@ public class TurtleInstructions {
      * @param distance The forward distance of the move.
      */
     public void forward(float distance) {
-        TurtleMove tm = new TurtleMove(TurtleMove.MoveType.FORWARD, distance);
-        instructions.add(tm);
-        netX += distance * Math.cos(Math.toRadians(netHeading));
-        netY += distance * Math.sin(Math.toRadians(netHeading));
+        tail.add(TurtleProgram.FORWARD, distance);
     }
 
     /**
@@ -42,10 +54,7 @@ public class TurtleInstructions {
      * @param distance The backwards distance of the move.
      */
     public void back(float distance) {
-        TurtleMove tm = new TurtleMove(TurtleMove.MoveType.BACK, distance);
-        instructions.add(tm);
-        netX += -distance * Math.cos(Math.toRadians(netHeading));
-        netY += -distance * Math.sin(Math.toRadians(netHeading));
+        tail.add(TurtleProgram.BACK, distance);
     }
 
     /**
@@ -53,10 +62,7 @@ public class TurtleInstructions {
      * @param degrees The number of degrees of the counterclockwise turn.
      */
     public void left(float degrees) {
-        TurtleMove tm = new TurtleMove(TurtleMove.MoveType.LEFT, degrees);
-        instructions.add(tm);
-        netHeading += degrees;
-        netHeading = netHeading % 360;
+        tail.add(TurtleProgram.LEFT, degrees);
     }
 
     /**
@@ -64,10 +70,52 @@ public class TurtleInstructions {
      * @param degrees The number of degrees of the clockwise turn.
      */
     public void right(float degrees) {
-        TurtleMove tm = new TurtleMove(TurtleMove.MoveType.RIGHT, degrees);
-        instructions.add(tm);
-        netHeading += -degrees;
-        netHeading = netHeading % 360;
+        tail.add(TurtleProgram.RIGHT, degrees);
+    }
+
+    /**
+     * Compiles the current list of instructions into a flat TurtleProgram,
+     * which a Turtle can run much faster than the list itself.
+     * Later changes to this TurtleInstructions do not affect the program.
+     * @return The compiled program.
+     */
+    public TurtleProgram compile() {
+        TurtleProgram program = new TurtleProgram((int)Math.min(size(), Integer.MAX_VALUE - 8));
+        TurtleMoveStream moves = stream();
+        while (moves.next()) {
+            program.add(moves.getOp(), moves.getAmount());
+        }
+        return program;
+    }
+
+    /**
+     * Returns a stream over the moves, expanding repeated sections as it goes.
+     * Changing this TurtleInstructions while the stream is read is not supported.
+     * @return A stream of the moves.
+     */
+    public TurtleMoveStream stream() {
+        if (root == null)
+            return new tMoveCursor(tail);
+        return new tMoveCursor(new tMoveNode[] {root, tail}, 2);
+    }
+
+    /**
+     * Returns the number of moves, counting every repetition.
+     * Unlike instructions.size(), the count is not capped at Integer.MAX_VALUE.
+     * @return The number of moves.
+     */
+    public long size() {
+        return rootSize() + tail.size();
+    }
+
+    // number of FORWARD and BACK moves, counting every repetition
+    long lineCount() {
+        return (root == null ? 0 : root.lines()) + tail.lines();
+    }
+
+    // appends a single move given by its TurtleProgram opcode
+    void add(byte op, float amount) {
+        tail.add(op, amount);
     }
 
     /**
@@ -87,29 +135,91 @@ public class TurtleInstructions {
     /**
      * Concatenates the instructions listed by another TurtleInstructions object
      * with this TurtleInstructions object's list of instructions.
-     * Note that it adds copies of the given TurtleMoves to the list, not pointers to the originals.
+     * The moves are shared rather than copied, so this takes O(log n) time;
+     * later changes to either object do not affect the other.
      * @param ti The TurtleInstructions whose instructions are to be concatenated.
      */
     public void then(TurtleInstructions ti) {
-        for (TurtleMove tm : ti.instructions) {
-            addMove(tm);
-        }
+        ti.freeze();
+        freeze();
+        root = tConcatNode.join(root, ti.root);
+    }
+
+    /**
+     * Returns a new TurtleInstructions holding the moves from index from (inclusive)
+     * to index to (exclusive). The moves are shared rather than copied, so this takes
+     * O(log n) time however long the slice is.
+     * @param from The index of the first move of the slice.
+     * @param to The index just past the last move of the slice.
+     * @return The slice.
+     */
+    public TurtleInstructions slice(long from, long to) {
+        if (from < 0 || to > size() || from > to)
+            throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", size: " + size());
+        TurtleInstructions ti = new TurtleInstructions();
+        if (from < to)
+            ti.root = root().slice(from, to);
+        return ti;
     }
 
     /**
-     * Concatenates all TurtleMoves from an ArrayList to this object's list of instructions.
+     * Concatenates all TurtleMoves from a List to this object's list of instructions,
+     * such as the instructions field of another TurtleInstructions.
      * Note that it adds copies of the given TurtleMoves, not pointers to the originals.
-     * @param moves An ArrayList of TurtleMoves to be concatenated with the current instructions.
+     * @param moves A List of TurtleMoves to be concatenated with the current instructions.
      */
-    public void then(ArrayList<TurtleMove> moves) {
+    public void then(List<TurtleMove> moves) {
+        if (moves == instructions) {
+            // reading the moves while appending to them would never end
+            then(this);
+            return;
+        }
         for (TurtleMove tm : moves) {
             addMove(tm);
         }
     }
 
+    /**
+     * Builds a sequence of moves from its text form, such as "F10 L90 R45 B5".
+     * Each move is a letter (F, B, L or R, in either case) followed by its amount,
+     * and moves are separated by whitespace or commas, which may be left out.
+     * A section written as n[...] is repeated n times, and brackets can be nested,
+     * so "4[F100 R90]" is a square. Anything from '#' to the end of a line is ignored.
+     * @param program The moves, as text.
+     * @return The sequence of moves.
+     * @throws IllegalArgumentException If the text is not a valid program; the
+     * message gives the line and column of the problem.
+     */
+    public static TurtleInstructions parse(CharSequence program) {
+        TurtleInstructions ti = new TurtleInstructions();
+        try {
+            new tParser(program).parseInto(ti);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ti;
+    }
+
+    /**
+     * Builds a sequence of moves from a text file, written as for {@link #parse(CharSequence)}.
+     * The file is read in pieces as it is parsed rather than loaded whole.
+     * @param pathName The path of the file.
+     * @return The sequence of moves.
+     * @throws IOException If the file can't be read.
+     * @throws IllegalArgumentException If the text is not a valid program.
+     */
+    public static TurtleInstructions parseFile(String pathName) throws IOException {
+        TurtleInstructions ti = new TurtleInstructions();
+        try (FileChannel channel = FileChannel.open(Paths.get(pathName), StandardOpenOption.READ)) {
+            new tParser(channel).parseInto(ti);
+        }
+        return ti;
+    }
+
     /**
      * Update instructions list to that the current sequence of moves is repeated
-     * a given number of times.
+     * a given number of times. The moves are not copied: the sequence is
+     * stored once along with the number of repetitions.
      * @param n The number of times the current sequence should be repeated.
      */
     public void repeat(int n) {
@@ -118,14 +228,11 @@ public class TurtleInstructions {
             repeat(-n);
             return;
         } else if (n == 0) {
-            instructions = new ArrayList<TurtleMove>();
-        } else {
-            int numMoves = instructions.size();
-            for (int i = 0; i < n-1; i++) {
-                for (int j = 0; j < numMoves; j++) {
-                    addMove(instructions.get(j));
-                }
-            }
+            setRoot(null);
+        } else if (n > 1) {
+            tMoveNode body = root();
+            if (body != null)
+                setRoot(new tRepeatNode(body, n));
         }
     }
 
@@ -133,15 +240,9 @@ public class TurtleInstructions {
      * Reverse the current sequence of instructions.
      */
     public void reverse() {
-        for (TurtleMove tm : instructions) {
-            tm.reverse();
-        }
-        Collections.reverse(instructions);
-        float oldX = netX;
-        float oldY = netY;
-        netX = oldX * (float)Math.cos(netHeading) + oldY * (float)Math.sin(netHeading);
-        netY = -oldX * (float)Math.sin(netHeading) + oldY * (float)Math.cos(netHeading);
-        netHeading = -netHeading;
+        freeze();
+        if (root != null)
+            root = root.reversed();
     }
 
     /**
@@ -149,11 +250,9 @@ public class TurtleInstructions {
      * @param factor The dilation factor.
      */
     public void dilate(float factor) {
-        for (TurtleMove tm : instructions) {
-            tm.dilate(factor);
-        }
-        netX = netX * factor;
-        netY = netY * factor;
+        freeze();
+        if (root != null)
+            root = root.dilated(factor);
     }
 
     /**
@@ -161,14 +260,12 @@ public class TurtleInstructions {
      * its final position lies on the positive Y-axis and its final heading is 90 degrees (pointing up).
      */
     public void normalizeAngle() {
-        float rDisplacement = (float)Math.sqrt(Math.pow(netX,2) + Math.pow(netY,2));
-        float thetaDisplacement = (float)((180/Math.PI)*Math.atan2(-netX, netY));
-        TurtleMove normalizeHeading = new TurtleMove(TurtleMove.MoveType.RIGHT, thetaDisplacement);
-        instructions.add(0, normalizeHeading);
-        right(netHeading - thetaDisplacement - 90);
-        netHeading = 90;
-        netX = 0;
-        netY = rDisplacement;
+        tTransform net = net();
+        float thetaDisplacement = (float)((180/Math.PI)*Math.atan2(net.y, net.x));
+        // the first turn lines the displacement up with the start heading
+        // and the last one undoes the rest of the rotation
+        tMoveNode turned = tConcatNode.join(turn(thetaDisplacement), root());
+        setRoot(tConcatNode.join(turned, turn((float)net.theta - thetaDisplacement)));
     }
 
     /**
@@ -176,42 +273,233 @@ public class TurtleInstructions {
      * @param length
      */
     public void normalizeLength(float length) {
-        float rDisplacement = (float)Math.sqrt(Math.pow(netX,2) + Math.pow(netY,2));
+        float rDisplacement = (float)net().length();
         dilate(length/rDisplacement);
-        rDisplacement = (float)Math.sqrt(Math.pow(netX,2) + Math.pow(netY,2));
+    }
+
+    /**
+     * Simplify the current sequence of moves without changing what it draws
+     * or where the Turtle ends up: zero-magnitude moves are dropped,
+     * consecutive moves in the same direction are merged into one,
+     * consecutive turns are combined into a single turn (mod 360 degrees),
+     * and turns that cancel out are removed. Moves that retrace a line
+     * (FORWARD followed by BACK) are kept, since both halves are drawn.
+     * Repeated and shared parts of the sequence stay repeated and shared:
+     * each is simplified once, and only the moves where two parts meet are
+     * merged across them.
+     * @return The number of moves removed.
+     */
+    public long optimize() {
+        long oldSize = size();
+        setRoot(tOptimizer.optimize(root()));
+        return oldSize - size();
     }
 
     /**
      * Substitute each FORWARD move the Turtle makes with a scaled copy
      * of a given sequence of moves, and repeat this substitution
-     * a given number of times.
+     * a given number of times. The expanded levels of ti are shared rather
+     * than copied, and remembered between calls so that drawing the same
+     * fractal again, or a deeper one, reuses the work already done
+     * (see {@link #setFractalCacheLimit(long)}). ti itself is not modified.
      * @param ti The sequence of moves to be substituted.
      * @param n The number of iterations of substitution.
      */
     public void fractalize(TurtleInstructions ti, int n) {
-        if (n == 1) {
-            int numMoves = instructions.size();
-            ArrayList<TurtleMove> oldMoves = instructions;
-            instructions = new ArrayList<TurtleMove>();
-            for (int i = 0; i < numMoves; i++) {
-                TurtleMove tm = oldMoves.get(i);
-                if (tm.moveType == TurtleMove.MoveType.FORWARD) {
-                    ti.normalizeLength(tm.amount);
-                    then(ti);
-                } else {
-                    addMove(tm);
-                }
+        if (n <= 0)
+            return;
+        tMoveNode level = tFractalCache.shared.level(ti.compile(), (float)ti.net().length(), n);
+        setRoot(substitute(root(), level));
+    }
+
+    // the moves of old with each FORWARD replaced by level scaled to its length;
+    // shared with TurtleFractal so that both give exactly the same moves
+    static tMoveNode substitute(tMoveNode old, tMoveNode level) {
+        TurtleMoveStream oldMoves = new tMoveCursor(old);
+        tMoveNode result = null;
+        tMoveLeaf run = new tMoveLeaf();
+        while (oldMoves.next()) {
+            if (oldMoves.getOp() == TurtleProgram.FORWARD) {
+                result = tConcatNode.join(result, run.freeze());
+                run = new tMoveLeaf();
+                result = tConcatNode.join(result, level.dilated(oldMoves.getAmount()));
+            } else {
+                run.add(oldMoves.getOp(), oldMoves.getAmount());
             }
-        } else {
-            fractalize(ti, 1);
-            fractalize(ti, n-1);
         }
+        return tConcatNode.join(result, run.freeze());
     }
 
-}
+    /**
+     * Sets roughly how much memory, in bytes, fractalize may use to remember
+     * expanded fractal levels. The least recently used levels are forgotten first.
+     * The cache is shared by all TurtleInstructions; the default is 16MB.
+     * @param bytes The memory limit, or 0 to stop caching.
+     */
+    public static void setFractalCacheLimit(long bytes) {
+        tFractalCache.shared.setLimit(bytes);
+    }
 
-/*
-TO DO:
-- make it possible to construct TurtleMoves using strings rather than the built-in enum,
-    so that TurtleMove construction doesn't have to be so wordy
- */
+    /**
+     * Forgets every expanded fractal level remembered by fractalize.
+     */
+    public static void clearFractalCache() {
+        tFractalCache.shared.clear();
+    }
+
+    /**
+     * Lazy version of {@link #fractalize(TurtleInstructions, int)}: returns a TurtleFractal
+     * that generates the same moves on demand, without modifying this object or ti.
+     * Use it for deep fractals whose fully expanded move list would not fit in memory.
+     * @param ti The sequence of moves to be substituted.
+     * @param n The number of iterations of substitution.
+     * @return The lazily expanded fractal.
+     */
+    public TurtleFractal lazyFractalize(TurtleInstructions ti, int n) {
+        return new TurtleFractal(this, ti, n);
+    }
+
+    // the net displacement and heading of the whole sequence, as a transform from a start heading of 0
+    tTransform net() {
+        tTransform rootNet = root == null ? tTransform.IDENTITY : root.transform();
+        if (tail.size() == 0)
+            return rootNet;
+        return rootNet.then(tail.transform());
+    }
+
+    // a leaf holding a single RIGHT turn
+    private static tMoveLeaf turn(float degrees) {
+        tMoveLeaf leaf = new tMoveLeaf();
+        leaf.add(TurtleProgram.RIGHT, degrees);
+        return leaf;
+    }
+
+    // moves the tail into the shared rope so that every move is in root
+    private void freeze() {
+        if (tail.size() > 0) {
+            root = tConcatNode.join(root, tail.freeze());
+            tail = new tMoveLeaf();
+        }
+    }
+
+    private long rootSize() {
+        return root == null ? 0 : root.size();
+    }
+
+    // all of the moves as a single node, or null if there are none; nodes
+    // never change, so the result can be kept as a snapshot of the moves
+    tMoveNode root() {
+        freeze();
+        return root;
+    }
+
+    // replaces the moves from index from up to index to with node, which may be null
+    private void splice(long from, long to, tMoveNode node) {
+        tMoveNode all = root();
+        long size = rootSize();
+        tMoveNode before = from > 0 ? all.slice(0, from) : null;
+        tMoveNode after = to < size ? all.slice(to, size) : null;
+        setRoot(tConcatNode.join(tConcatNode.join(before, node), after));
+    }
+
+    // replaces all of the moves with node
+    private void setRoot(tMoveNode node) {
+        root = node;
+        tail = new tMoveLeaf();
+    }
+
+    // the view behind the instructions field
+    private class MoveList extends AbstractList<TurtleMove> {
+
+        public TurtleMove get(int i) {
+            if (i < 0 || i >= size())
+                throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size());
+            long rootSize = rootSize();
+            if (i >= rootSize)
+                return tail.move((int)(i - rootSize));
+            return tMoveNode.moveAt(root, i);
+        }
+
+        public int size() {
+            return (int)Math.min(TurtleInstructions.this.size(), Integer.MAX_VALUE);
+        }
+
+        public Iterator<TurtleMove> iterator() {
+            return new tMoveIterator(TurtleInstructions.this.stream());
+        }
+
+        public boolean add(TurtleMove tm) {
+            addMove(tm);
+            modCount++;
+            return true;
+        }
+
+        public void add(int i, TurtleMove tm) {
+            if (i < 0 || i > size())
+                throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size());
+            if (i == size()) {
+                add(tm);
+                return;
+            }
+            splice(i, i, single(tm));
+            modCount++;
+        }
+
+        public TurtleMove set(int i, TurtleMove tm) {
+            TurtleMove old = get(i);
+            long rootSize = rootSize();
+            if (i >= rootSize && tm.moveType == old.moveType)
+                tail.setAmount((int)(i - rootSize), tm.amount);
+            else
+                splice(i, i + 1, single(tm));
+            return old;
+        }
+
+        public TurtleMove remove(int i) {
+            TurtleMove old = get(i);
+            splice(i, i + 1, null);
+            modCount++;
+            return old;
+        }
+
+        protected void removeRange(int from, int to) {
+            if (from < to) {
+                splice(from, to, null);
+                modCount++;
+            }
+        }
+
+        public void clear() {
+            setRoot(null);
+            modCount++;
+        }
+
+        public boolean removeIf(Predicate<? super TurtleMove> filter) {
+            tMoveLeaf kept = new tMoveLeaf();
+            TurtleMoveStream moves = TurtleInstructions.this.stream();
+            boolean removed = false;
+            while (moves.next()) {
+                byte op = moves.getOp();
+                float amount = moves.getAmount();
+                if (filter.test(new TurtleMove(TurtleMove.typeOf(op), amount)))
+                    removed = true;
+                else
+                    kept.add(op, amount);
+            }
+            if (removed) {
+                setRoot(null);
+                tail = kept;
+                modCount++;
+            }
+            return removed;
+        }
+
+        // a frozen node holding a copy of a single move
+        private tMoveNode single(TurtleMove tm) {
+            tMoveLeaf leaf = new tMoveLeaf();
+            leaf.add(tm.opcode(), tm.amount);
+            return leaf.freeze();
+        }
+    }
+
+}
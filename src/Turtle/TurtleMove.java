@@ -1,7 +1,5 @@
 package Turtle;
 
-import processing.core.*;
-
 /**
  * TurtleMove class, storing a single basic Turtle move.
  * Every move has a type and a magnitude, which is
@@ -12,7 +10,7 @@ public class TurtleMove {
     MoveType moveType;
     float amount;
 
-    enum MoveType {
+    public enum MoveType {
         FORWARD, BACK, LEFT, RIGHT
     }
 
@@ -43,6 +41,33 @@ public class TurtleMove {
         return new TurtleMove(moveType, amount);
     }
 
+    /**
+     * Returns the TurtleProgram opcode for this move's type.
+     * @return The opcode of this move.
+     */
+    byte opcode() {
+        switch (moveType) {
+            case FORWARD: return TurtleProgram.FORWARD;
+            case BACK: return TurtleProgram.BACK;
+            case LEFT: return TurtleProgram.LEFT;
+            default: return TurtleProgram.RIGHT;
+        }
+    }
+
+    /**
+     * Returns the move type for a TurtleProgram opcode.
+     * @param op The opcode.
+     * @return The type of move the opcode stands for.
+     */
+    static MoveType typeOf(byte op) {
+        switch (op) {
+            case TurtleProgram.FORWARD: return MoveType.FORWARD;
+            case TurtleProgram.BACK: return MoveType.BACK;
+            case TurtleProgram.LEFT: return MoveType.LEFT;
+            default: return MoveType.RIGHT;
+        }
+    }
+
     /**
      * "Reverses" this TurtleMove by swapping FORWARD/BACK and LEFT/RIGHT.
      */
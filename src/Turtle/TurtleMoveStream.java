@@ -0,0 +1,28 @@
+package Turtle;
+
+/**
+ * TurtleMoveStream interface, a source of Turtle moves that are produced one
+ * at a time instead of being held in a list. Moves are read like a cursor:
+ * call next() to advance to a move, then getOp() and getAmount() to read it.
+ * @author Franklin Pezzuti Dyer
+ */
+public interface TurtleMoveStream {
+
+    /**
+     * Advances to the next move.
+     * @return false if there are no more moves.
+     */
+    boolean next();
+
+    /**
+     * Returns the opcode of the current move, one of the TurtleProgram opcodes.
+     * @return The opcode of the current move.
+     */
+    byte getOp();
+
+    /**
+     * Returns the magnitude of the current move, a length or an angle.
+     * @return The magnitude of the current move.
+     */
+    float getAmount();
+}
@@ -0,0 +1,117 @@
+package Turtle;
+
+/**
+ * TurtleProgram class, a compiled, flat form of a TurtleInstructions list.
+ * Moves are stored as a byte opcode array plus a float operand array, which
+ * {@link TurtleCore#instruct(TurtleProgram)} runs in a tight loop.
+ * @author Franklin Pezzuti Dyer
+ */
+public class TurtleProgram {
+
+    public static final byte FORWARD = 0;
+    public static final byte BACK = 1;
+    public static final byte LEFT = 2;
+    public static final byte RIGHT = 3;
+
+    byte[] ops;
+    float[] amounts;
+    int length;
+
+    /**
+     * Creates an empty program with room for a given number of moves.
+     * @param capacity The number of moves to reserve space for.
+     */
+    TurtleProgram(int capacity) {
+        ops = new byte[Math.max(capacity, 1)];
+        amounts = new float[Math.max(capacity, 1)];
+        length = 0;
+    }
+
+    /**
+     * Appends a move to the program, growing the arrays if needed.
+     * @param op The opcode of the move.
+     * @param amount The magnitude of the move.
+     */
+    void add(byte op, float amount) {
+        if (length == ops.length) {
+            int capacity = ops.length * 2;
+            byte[] newOps = new byte[capacity];
+            float[] newAmounts = new float[capacity];
+            System.arraycopy(ops, 0, newOps, 0, length);
+            System.arraycopy(amounts, 0, newAmounts, 0, length);
+            ops = newOps;
+            amounts = newAmounts;
+        }
+        ops[length] = op;
+        amounts[length] = amount;
+        length++;
+    }
+
+    /**
+     * Returns the number of moves in the program.
+     * @return The number of moves.
+     */
+    public int size() {
+        return length;
+    }
+
+    /**
+     * Returns the opcode (FORWARD, BACK, LEFT or RIGHT) of a move.
+     * @param i The index of the move.
+     * @return The opcode of the move.
+     */
+    public byte getOp(int i) {
+        return ops[i];
+    }
+
+    /**
+     * Computes every point the Turtle passes through when running this program,
+     * splitting the work across all available cores with a parallel prefix scan.
+     * The result holds x and y of the starting point followed by the end point
+     * of each FORWARD or BACK move: x0, y0, x1, y1, ... Wrap-around is not applied.
+     * <p>
+     * Headings are added up in float in program order, exactly as a Turtle running
+     * the program adds them up, so both always use the same headings. Positions are
+     * accumulated in double precision, while the Turtle accumulates them in float,
+     * and the two agree to within the Turtle's own rounding: after n moves, at most
+     * n * 2^-24 times the sum of the largest coordinate and the longest move, and
+     * usually far less.
+     * @param x The starting x coordinate, as in Turtle.getX().
+     * @param y The starting y coordinate, as in Turtle.getY().
+     * @param heading The starting heading, as in Turtle.getHeading().
+     * @return The vertices, two floats per point.
+     */
+    public float[] vertices(float x, float y, float heading) {
+        return tPrefixScan.vertices(this, x, y, heading);
+    }
+
+    /**
+     * Computes every point a Turtle with fixed-point stepping passes through when
+     * running this program, split across all available cores like
+     * {@link #vertices(float, float, float)}. The scan uses only integer adds, so
+     * the result is bit-for-bit what a Turtle with
+     * {@link TurtleCore#setFixedPoint(boolean)} on and the same number of
+     * fractional bits reaches when it runs the program from the same start.
+     * @param x The starting x coordinate, as in Turtle.getX().
+     * @param y The starting y coordinate, as in Turtle.getY().
+     * @param heading The starting heading, as in Turtle.getHeading().
+     * @param fractionalBits The number of fractional bits, from 0 to 32.
+     * @return The vertices, two floats per point.
+     */
+    public float[] vertices(float x, float y, float heading, int fractionalBits) {
+        if (fractionalBits < 0 || fractionalBits > tFixedPoint.MAX_BITS) {
+            throw new IllegalArgumentException("fractionalBits must be between 0 and " + tFixedPoint.MAX_BITS);
+        }
+        return tFixedScan.vertices(this, x, y, heading, fractionalBits);
+    }
+
+    /**
+     * Returns the magnitude of a move, a length or an angle depending on its opcode.
+     * @param i The index of the move.
+     * @return The magnitude of the move.
+     */
+    public float getAmount(int i) {
+        return amounts[i];
+    }
+
+}
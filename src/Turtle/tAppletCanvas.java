@@ -0,0 +1,74 @@
+package Turtle;
+
+import processing.core.PApplet;
+import processing.core.PConstants;
+
+/**
+ * Canvas that draws a Turtle's lines into a Processing sketch, either one
+ * line() call at a time or, in batched mode, collected and drawn in a single
+ * shape by flush(). Lines can also be switched off entirely while the Turtle
+ * redraws its history some other way.
+ */
+class tAppletCanvas implements TurtleCanvas {
+	private PApplet myParent;
+	private boolean batched;
+	private boolean enabled;
+	private tLineBuffer pendingLines; // lines waiting to be drawn in batched mode
+
+	tAppletCanvas(PApplet theParent) {
+		myParent = theParent;
+		batched = false;
+		enabled = true;
+		pendingLines = new tLineBuffer();
+	}
+
+	public int getWidth() {
+		return myParent.width;
+	}
+
+	public int getHeight() {
+		return myParent.height;
+	}
+
+	public void line(float x0, float y0, float x1, float y1) {
+		if (!enabled)
+			return;
+		if (batched)
+			pendingLines.add(x0, y0, x1, y1, 0, penStates.PENDOWN);
+		else
+			myParent.line(x0, y0, x1, y1);
+	}
+
+	public void triangle(float x1, float y1, float x2, float y2, float x3, float y3) {
+		if (enabled)
+			myParent.triangle(x1, y1, x2, y2, x3, y3);
+	}
+
+	boolean isBatched() {
+		return batched;
+	}
+
+	void setBatched(boolean batchedInput) {
+		if (!batchedInput)
+			flush();
+		batched = batchedInput;
+	}
+
+	void setEnabled(boolean enabledInput) {
+		enabled = enabledInput;
+	}
+
+	// draw all pending lines in one LINES shape
+	void flush() {
+		int numLines = pendingLines.size();
+		if (numLines == 0)
+			return;
+		myParent.beginShape(PConstants.LINES);
+		for (int i = 0; i < numLines; i++) {
+			myParent.vertex(pendingLines.x0[i], pendingLines.y0[i]);
+			myParent.vertex(pendingLines.x1[i], pendingLines.y1[i]);
+		}
+		myParent.endShape();
+		pendingLines.clear();
+	}
+}
@@ -0,0 +1,28 @@
+package Turtle;
+
+/**
+ * Canvas with a size but nothing to draw on, for headless Turtles.
+ */
+class tBlankCanvas implements TurtleCanvas {
+	private int width;
+	private int height;
+
+	tBlankCanvas(int widthInput, int heightInput) {
+		width = widthInput;
+		height = heightInput;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public void line(float x0, float y0, float x1, float y1) {
+	}
+
+	public void triangle(float x1, float y1, float x2, float y2, float x3, float y3) {
+	}
+}
@@ -0,0 +1,124 @@
+package Turtle;
+
+/**
+ * Two nodes performed one after the other. Concat nodes form a balanced
+ * binary tree (a rope) over leaves and repeat nodes, with views of concat
+ * nodes counted as the concat nodes they show: the heights of the two
+ * sides of every concat node differ by at most one, as in an AVL tree, so
+ * joining, slicing and finding a move take O(log n) steps and share every
+ * untouched subtree.
+ */
+class tConcatNode extends tMoveNode {
+	final tMoveNode left;
+	final tMoveNode right;
+	final int height; // leaves and repeat nodes count as height 0
+	private final long size;
+	private final long lines;
+	private tTransform transform; // computed on first use
+
+	tConcatNode(tMoveNode leftInput, tMoveNode rightInput) {
+		this(leftInput, rightInput, null);
+	}
+
+	// for when the net transform is already known; null to compose it from the children
+	tConcatNode(tMoveNode leftInput, tMoveNode rightInput, tTransform transformInput) {
+		left = leftInput;
+		right = rightInput;
+		height = Math.max(height(left), height(right)) + 1;
+		size = left.size() + right.size();
+		lines = left.lines() + right.lines();
+		transform = transformInput;
+	}
+
+	long size() {
+		return size;
+	}
+
+	long lines() {
+		return lines;
+	}
+
+	tTransform transform() {
+		if (transform == null)
+			transform = left.transform().then(right.transform());
+		return transform;
+	}
+
+	tMoveNode slice(long from, long to) {
+		if (from == 0 && to == size)
+			return this;
+		long leftSize = left.size();
+		if (to <= leftSize)
+			return left.slice(from, to);
+		if (from >= leftSize)
+			return right.slice(from - leftSize, to - leftSize);
+		return join(left.slice(from, leftSize), right.slice(0, to - leftSize));
+	}
+
+	/**
+	 * The moves of a followed by those of b, as a balanced tree. Either may
+	 * be null for no moves. Takes O(|height(a) - height(b)|) steps.
+	 */
+	static tMoveNode join(tMoveNode a, tMoveNode b) {
+		if (a == null || a.size() == 0)
+			return b;
+		if (b == null || b.size() == 0)
+			return a;
+		int heightA = height(a);
+		int heightB = height(b);
+		if (heightA > heightB + 1) {
+			tConcatNode c = concat(a);
+			return balance(c.left, join(c.right, b));
+		}
+		if (heightB > heightA + 1) {
+			tConcatNode c = concat(b);
+			return balance(join(a, c.left), c.right);
+		}
+		return new tConcatNode(a, b);
+	}
+
+	/**
+	 * A balanced tree over nodes[from .. to), in order.
+	 */
+	static tMoveNode build(tMoveNode[] nodes, int from, int to) {
+		if (to - from == 1)
+			return nodes[from];
+		int mid = (from + to) >>> 1;
+		return new tConcatNode(build(nodes, from, mid), build(nodes, mid, to));
+	}
+
+	// a view of a concat node has the height of the concat node it shows
+	static int height(tMoveNode node) {
+		if (node instanceof tViewNode)
+			node = ((tViewNode) node).source;
+		return node instanceof tConcatNode ? ((tConcatNode) node).height : 0;
+	}
+
+	// node, which has a height above 0, as a concat node
+	private static tConcatNode concat(tMoveNode node) {
+		if (node instanceof tViewNode)
+			return ((tViewNode) node).expose();
+		return (tConcatNode) node;
+	}
+
+	// concat of l and r, whose heights differ by at most two, rotated back into balance
+	private static tMoveNode balance(tMoveNode l, tMoveNode r) {
+		int heightL = height(l);
+		int heightR = height(r);
+		if (heightL > heightR + 1) {
+			tConcatNode c = concat(l);
+			if (height(c.left) >= height(c.right))
+				return new tConcatNode(c.left, new tConcatNode(c.right, r));
+			tConcatNode inner = concat(c.right);
+			return new tConcatNode(new tConcatNode(c.left, inner.left), new tConcatNode(inner.right, r));
+		}
+		if (heightR > heightL + 1) {
+			tConcatNode c = concat(r);
+			if (height(c.right) >= height(c.left))
+				return new tConcatNode(new tConcatNode(l, c.left), c.right);
+			tConcatNode inner = concat(c.left);
+			return new tConcatNode(new tConcatNode(l, inner.left), new tConcatNode(inner.right, c.right));
+		}
+		return new tConcatNode(l, r);
+	}
+}
@@ -0,0 +1,17 @@
+package Turtle;
+
+/**
+ * A place where two lines of a Turtle's path cross or touch, as reported by
+ * {@link TurtleCore#selfIntersections()}.
+ */
+public class tCrossing {
+	public tLine line0; // the line drawn first
+	public tLine line1; // the line drawn later
+	public tPoint point; // where they meet
+
+	tCrossing(tLine line0Input, tLine line1Input, tPoint pointInput) {
+		line0 = line0Input;
+		line1 = line1Input;
+		point = pointInput;
+	}
+}
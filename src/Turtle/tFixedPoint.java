@@ -0,0 +1,142 @@
+package Turtle;
+
+/**
+ * Fixed-point Turtle stepping. Positions are 64-bit integers with a chosen
+ * number of fractional bits and the heading is an integer number of 2^-16
+ * degree steps, so turning is an integer add and a move adds integer
+ * offsets looked up from sine tables (one for whole degrees, one for
+ * fractions of a degree, combined with the angle addition formula). The
+ * tables are filled with StrictMath and all rounding is done in integers,
+ * so the same moves give bit-for-bit the same positions on every run,
+ * thread and JVM, in any order of adding up the offsets.
+ *
+ * Headings follow the Turtle: degrees, clockwise, 0 pointing up the screen.
+ */
+class tFixedPoint {
+	static final int MAX_BITS = 32;
+	static final int DEFAULT_BITS = 16;
+	static final int ANGLE_BITS = 16;
+	static final int FULL_TURN = 360 << ANGLE_BITS;
+	private static final int TRIG_BITS = 30;
+	private static final long ONE = 1L << TRIG_BITS;
+
+	private static final long[] DEGREE_SIN = new long[360];
+	private static final long[] FRACTION_SIN = new long[1 << ANGLE_BITS];
+	private static final long[] FRACTION_COS = new long[1 << ANGLE_BITS];
+
+	static {
+		for (int i = 0; i < 360; i++) {
+			DEGREE_SIN[i] = Math.round(StrictMath.sin(StrictMath.toRadians(i)) * ONE);
+		}
+		DEGREE_SIN[0] = 0;
+		DEGREE_SIN[90] = ONE;
+		DEGREE_SIN[180] = 0;
+		DEGREE_SIN[270] = -ONE;
+		for (int i = 0; i < FRACTION_SIN.length; i++) {
+			double radians = StrictMath.toRadians(i / (double) (1 << ANGLE_BITS));
+			FRACTION_SIN[i] = Math.round(StrictMath.sin(radians) * ONE);
+			FRACTION_COS[i] = Math.round(StrictMath.cos(radians) * ONE);
+		}
+	}
+
+	final int bits;
+	long x;
+	long y;
+	int heading; // in [0, FULL_TURN)
+	private int trigHeading = -1; // heading that sin/cos were looked up for
+	private long sin;
+	private long cos;
+
+	// values last written to the Turtle, to notice when it was moved some other way
+	private float publishedX = Float.NaN;
+	private float publishedY = Float.NaN;
+	private float publishedTheta = Float.NaN;
+
+	tFixedPoint(int bitsInput) {
+		bits = Math.max(0, Math.min(MAX_BITS, bitsInput));
+	}
+
+	/**
+	 * Move T by distance along its heading (backwards if negative).
+	 */
+	void move(TurtleCore T, float distance) {
+		sync(T);
+		if (trigHeading != heading) {
+			sin = sin(heading);
+			cos = sin(heading + FULL_TURN / 4);
+			trigHeading = heading;
+		}
+		long d = toFixed(distance, bits);
+		x += multiply(d, sin);
+		y -= multiply(d, cos);
+		publish(T);
+	}
+
+	/**
+	 * Turn T clockwise by degrees (counterclockwise if negative).
+	 */
+	void turn(TurtleCore T, float degrees) {
+		sync(T);
+		heading = wrap((long) heading + angle(degrees));
+		publish(T);
+	}
+
+	// take on any position or heading that was set without going through the engine
+	private void sync(TurtleCore T) {
+		if (T.currentX != publishedX)
+			x = toFixed(T.currentX, bits);
+		if (T.currentY != publishedY)
+			y = toFixed(T.currentY, bits);
+		if (T.currentTheta != publishedTheta)
+			heading = wrap(angle(T.currentTheta));
+	}
+
+	private void publish(TurtleCore T) {
+		T.currentX = publishedX = toFloat(x, bits);
+		T.currentY = publishedY = toFloat(y, bits);
+		T.currentTheta = publishedTheta = (float) (heading / (double) (1 << ANGLE_BITS));
+	}
+
+	/**
+	 * A number of degrees as a whole number of heading steps.
+	 */
+	static long angle(float degrees) {
+		return Math.round(degrees * (double) (1 << ANGLE_BITS));
+	}
+
+	// map any number of heading steps into [0, FULL_TURN)
+	static int wrap(long steps) {
+		return (int) Math.floorMod(steps, (long) FULL_TURN);
+	}
+
+	/**
+	 * Sine of a heading in [0, 2 * FULL_TURN), scaled by 2^30.
+	 */
+	static long sin(int heading) {
+		int degree = (heading >>> ANGLE_BITS) % 360;
+		int fraction = heading & ((1 << ANGLE_BITS) - 1);
+		// sin(a + b) = sin(a) cos(b) + cos(a) sin(b)
+		long sum = DEGREE_SIN[degree] * FRACTION_COS[fraction] + DEGREE_SIN[(degree + 90) % 360] * FRACTION_SIN[fraction];
+		return (sum + (ONE >> 1)) >> TRIG_BITS;
+	}
+
+	static long toFixed(float value, int bits) {
+		return Math.round(value * (double) (1L << bits));
+	}
+
+	static float toFloat(long value, int bits) {
+		return (float) (value / (double) (1L << bits));
+	}
+
+	/**
+	 * length * trig / 2^30, rounded, without overflowing in between.
+	 */
+	static long multiply(long length, long trig) {
+		long high = Math.multiplyHigh(length, trig);
+		long low = length * trig;
+		long rounded = low + (ONE >> 1);
+		if (Long.compareUnsigned(rounded, low) < 0)
+			high++;
+		return (high << (64 - TRIG_BITS)) | (rounded >>> TRIG_BITS);
+	}
+}
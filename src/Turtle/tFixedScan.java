@@ -0,0 +1,213 @@
+package Turtle;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parallel prefix scan turning a TurtleProgram into the positions a Turtle
+ * with fixed-point stepping passes through. Like tPrefixScan the program is
+ * cut into blocks, but here every step is an integer add, so the blocks can
+ * be summed in any grouping and still give exactly the positions the Turtle
+ * would reach move by move. Fixed-point displacements depend on the absolute
+ * heading, not on the heading relative to the block's start, so the scan
+ * takes three parallel passes: the turns of each block are added up, then
+ * the moves of each block are added up from the block's absolute heading,
+ * then each block replays its moves from its absolute start, writing its
+ * vertices into its slice of the result.
+ *
+ * Headings follow the Turtle: degrees, clockwise, 0 pointing up the screen.
+ */
+class tFixedScan {
+	// moves per block; also the size below which the scan runs on one thread
+	private static final int BLOCK_SIZE = 1 << 16;
+
+	private static final int TURNS = 0;
+	private static final int MOVES = 1;
+	private static final int WRITE = 2;
+
+	private final byte[] ops;
+	private final float[] amounts;
+	private final int length;
+	private final int numBlocks;
+	private final int bits;
+
+	// per block: sum of its turns, its displacement and its line count
+	private final long[] blockTurn;
+	private final long[] blockX;
+	private final long[] blockY;
+	private final int[] blockLines;
+
+	// per block: absolute position and heading at the block's start, and first vertex
+	private final long[] startX;
+	private final long[] startY;
+	private final int[] startHeading;
+	private final int[] firstVertex;
+
+	private float[] vertices;
+
+	private tFixedScan(TurtleProgram program, int bitsInput) {
+		ops = program.ops;
+		amounts = program.amounts;
+		length = program.length;
+		numBlocks = Math.max(1, (length + BLOCK_SIZE - 1) / BLOCK_SIZE);
+		bits = bitsInput;
+		blockTurn = new long[numBlocks];
+		blockX = new long[numBlocks];
+		blockY = new long[numBlocks];
+		blockLines = new int[numBlocks];
+		startX = new long[numBlocks];
+		startY = new long[numBlocks];
+		startHeading = new int[numBlocks];
+		firstVertex = new int[numBlocks];
+	}
+
+	/**
+	 * Positions after every FORWARD and BACK move of program, for a Turtle
+	 * with fixed-point stepping (bits fractional bits) starting at (x, y)
+	 * with the given heading, as x0, y0, x1, y1, ... with the starting point
+	 * first.
+	 */
+	static float[] vertices(TurtleProgram program, float x, float y, float heading, int bits) {
+		tFixedScan scan = new tFixedScan(program, bits);
+		if (scan.numBlocks == 1) {
+			scan.sumTurns(0);
+			scan.chainHeadings(heading);
+			scan.sumMoves(0);
+			scan.chainPositions(x, y);
+			scan.replay(0);
+		} else {
+			ForkJoinPool pool = ForkJoinPool.commonPool();
+			pool.invoke(scan.new Pass(0, scan.numBlocks, TURNS));
+			scan.chainHeadings(heading);
+			pool.invoke(scan.new Pass(0, scan.numBlocks, MOVES));
+			scan.chainPositions(x, y);
+			pool.invoke(scan.new Pass(0, scan.numBlocks, WRITE));
+		}
+		return scan.vertices;
+	}
+
+	// total turn of block b, in heading steps
+	private void sumTurns(int b) {
+		int end = Math.min(length, (b + 1) * BLOCK_SIZE);
+		long turn = 0;
+		for (int i = b * BLOCK_SIZE; i < end; i++) {
+			if (ops[i] == TurtleProgram.RIGHT)
+				turn += tFixedPoint.angle(amounts[i]);
+			else if (ops[i] == TurtleProgram.LEFT)
+				turn += tFixedPoint.angle(-amounts[i]);
+		}
+		blockTurn[b] = turn;
+	}
+
+	// absolute heading at the start of every block
+	private void chainHeadings(float heading) {
+		long h = tFixedPoint.angle(heading);
+		for (int b = 0; b < numBlocks; b++) {
+			startHeading[b] = tFixedPoint.wrap(h);
+			h = startHeading[b] + blockTurn[b];
+		}
+	}
+
+	// displacement and line count of block b, from its absolute start heading
+	private void sumMoves(int b) {
+		int end = Math.min(length, (b + 1) * BLOCK_SIZE);
+		int heading = startHeading[b];
+		long x = 0;
+		long y = 0;
+		int lines = 0;
+		for (int i = b * BLOCK_SIZE; i < end; i++) {
+			switch (ops[i]) {
+				case TurtleProgram.FORWARD:
+				case TurtleProgram.BACK:
+					long d = tFixedPoint.toFixed(ops[i] == TurtleProgram.FORWARD ? amounts[i] : -amounts[i], bits);
+					x += tFixedPoint.multiply(d, tFixedPoint.sin(heading));
+					y -= tFixedPoint.multiply(d, tFixedPoint.sin(heading + tFixedPoint.FULL_TURN / 4));
+					lines++;
+					break;
+				case TurtleProgram.LEFT:
+					heading = tFixedPoint.wrap((long) heading + tFixedPoint.angle(-amounts[i]));
+					break;
+				case TurtleProgram.RIGHT:
+					heading = tFixedPoint.wrap((long) heading + tFixedPoint.angle(amounts[i]));
+					break;
+			}
+		}
+		blockX[b] = x;
+		blockY[b] = y;
+		blockLines[b] = lines;
+	}
+
+	// exclusive scan over the block displacements, and allocation of the result
+	private void chainPositions(float x, float y) {
+		long cx = tFixedPoint.toFixed(x, bits);
+		long cy = tFixedPoint.toFixed(y, bits);
+		int vertex = 1;
+		for (int b = 0; b < numBlocks; b++) {
+			startX[b] = cx;
+			startY[b] = cy;
+			firstVertex[b] = vertex;
+			cx += blockX[b];
+			cy += blockY[b];
+			vertex += blockLines[b];
+		}
+		vertices = new float[2 * vertex];
+		vertices[0] = tFixedPoint.toFloat(startX[0], bits);
+		vertices[1] = tFixedPoint.toFloat(startY[0], bits);
+	}
+
+	// the moves of block b again, from its absolute start, writing its vertices
+	private void replay(int b) {
+		int end = Math.min(length, (b + 1) * BLOCK_SIZE);
+		int heading = startHeading[b];
+		long x = startX[b];
+		long y = startY[b];
+		int v = 2 * firstVertex[b];
+		for (int i = b * BLOCK_SIZE; i < end; i++) {
+			switch (ops[i]) {
+				case TurtleProgram.FORWARD:
+				case TurtleProgram.BACK:
+					long d = tFixedPoint.toFixed(ops[i] == TurtleProgram.FORWARD ? amounts[i] : -amounts[i], bits);
+					x += tFixedPoint.multiply(d, tFixedPoint.sin(heading));
+					y -= tFixedPoint.multiply(d, tFixedPoint.sin(heading + tFixedPoint.FULL_TURN / 4));
+					vertices[v++] = tFixedPoint.toFloat(x, bits);
+					vertices[v++] = tFixedPoint.toFloat(y, bits);
+					break;
+				case TurtleProgram.LEFT:
+					heading = tFixedPoint.wrap((long) heading + tFixedPoint.angle(-amounts[i]));
+					break;
+				case TurtleProgram.RIGHT:
+					heading = tFixedPoint.wrap((long) heading + tFixedPoint.angle(amounts[i]));
+					break;
+			}
+		}
+	}
+
+	// runs one pass over a range of blocks, splitting it in half until one block is left
+	private class Pass extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final int step;
+
+		Pass(int fromInput, int toInput, int stepInput) {
+			from = fromInput;
+			to = toInput;
+			step = stepInput;
+		}
+
+		protected void compute() {
+			if (to - from == 1) {
+				if (step == TURNS)
+					sumTurns(from);
+				else if (step == MOVES)
+					sumMoves(from);
+				else
+					replay(from);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new Pass(from, mid, step), new Pass(mid, to, step));
+		}
+	}
+}
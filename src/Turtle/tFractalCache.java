@@ -0,0 +1,131 @@
+package Turtle;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least-recently-used cache of expanded fractal levels, shared by every
+ * TurtleInstructions. Level k of a template is what a FORWARD of length 1
+ * turns into after k rounds of substitution: the template scaled to a net
+ * displacement of 1, with each of its FORWARD moves replaced by a scaled view
+ * of level k - 1. Levels are rope nodes, so each one only adds about as many
+ * nodes as the template has moves and shares everything below it; a deeper
+ * level is built on top of the deepest one already cached.
+ *
+ * Entries are keyed by the template's moves and the depth, and the cache
+ * evicts the least recently used levels once their estimated size passes
+ * the limit.
+ */
+class tFractalCache {
+	private static final long DEFAULT_LIMIT = 16L << 20;
+	private static final int BYTES_PER_MOVE = 96; // rough heap cost of the nodes a level adds per template move
+
+	static final tFractalCache shared = new tFractalCache(DEFAULT_LIMIT);
+
+	private final LinkedHashMap<Key, tMoveNode> levels = new LinkedHashMap<Key, tMoveNode>(16, 0.75f, true);
+	private long limit;
+	private long used;
+
+	tFractalCache(long limitInput) {
+		limit = limitInput;
+	}
+
+	synchronized void setLimit(long bytes) {
+		limit = bytes;
+		evict();
+	}
+
+	synchronized void clear() {
+		levels.clear();
+		used = 0;
+	}
+
+	/**
+	 * Level depth of template, whose net displacement has length templateLength.
+	 */
+	synchronized tMoveNode level(TurtleProgram template, float templateLength, int depth) {
+		byte[] ops = Arrays.copyOf(template.ops, template.length);
+		float[] amounts = Arrays.copyOf(template.amounts, template.length);
+		int start = depth;
+		tMoveNode level = null;
+		while (start > 0) {
+			level = levels.get(new Key(ops, amounts, start));
+			if (level != null)
+				break;
+			start--;
+		}
+		if (level == null) {
+			tMoveLeaf unit = new tMoveLeaf(1);
+			unit.add(TurtleProgram.FORWARD, 1);
+			level = unit;
+		}
+		for (int k = start + 1; k <= depth; k++) {
+			level = expand(ops, amounts, templateLength, level);
+			put(new Key(ops, amounts, k), level);
+		}
+		return level;
+	}
+
+	// the next level up from below
+	private static tMoveNode expand(byte[] ops, float[] amounts, float templateLength, tMoveNode below) {
+		tMoveNode result = null;
+		tMoveLeaf run = new tMoveLeaf();
+		for (int i = 0; i < ops.length; i++) {
+			if (ops[i] == TurtleProgram.FORWARD) {
+				result = tConcatNode.join(result, run.freeze());
+				run = new tMoveLeaf();
+				result = tConcatNode.join(result, below.dilated(amounts[i] / templateLength));
+			} else if (ops[i] == TurtleProgram.BACK) {
+				run.add(ops[i], amounts[i] / templateLength);
+			} else {
+				run.add(ops[i], amounts[i]);
+			}
+		}
+		return tConcatNode.join(result, run.freeze());
+	}
+
+	private void put(Key key, tMoveNode level) {
+		if (levels.put(key, level) == null)
+			used += key.weight();
+		evict();
+	}
+
+	private void evict() {
+		Iterator<Map.Entry<Key, tMoveNode>> eldest = levels.entrySet().iterator();
+		while (used > limit && eldest.hasNext()) {
+			used -= eldest.next().getKey().weight();
+			eldest.remove();
+		}
+	}
+
+	private static class Key {
+		final byte[] ops;
+		final float[] amounts;
+		final int depth;
+		final int hash;
+
+		Key(byte[] opsInput, float[] amountsInput, int depthInput) {
+			ops = opsInput;
+			amounts = amountsInput;
+			depth = depthInput;
+			hash = 31 * (31 * Arrays.hashCode(ops) + Arrays.hashCode(amounts)) + depth;
+		}
+
+		long weight() {
+			return (long) ops.length * BYTES_PER_MOVE;
+		}
+
+		public int hashCode() {
+			return hash;
+		}
+
+		public boolean equals(Object o) {
+			if (!(o instanceof Key))
+				return false;
+			Key k = (Key) o;
+			return hash == k.hash && depth == k.depth && Arrays.equals(ops, k.ops) && Arrays.equals(amounts, k.amounts);
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package Turtle;
+
+import java.math.BigDecimal;
+
+/**
+ * Robust geometric predicates for the Turtle's float coordinates. The
+ * orientation test is first evaluated in plain double arithmetic with a
+ * forward error bound; only when the result is too close to zero to trust
+ * does it escalate to exact arithmetic (error-free transformations, and
+ * BigDecimal for the rare inputs those can't handle).
+ */
+final class tGeometry {
+	private static final double EPSILON = Math.ulp(1.0) / 2;
+	// Shewchuk's error bound for the first, plain double, stage of orient2d
+	private static final double ORIENT_ERROR_BOUND = (3 + 16 * EPSILON) * EPSILON;
+
+	private tGeometry() {
+	}
+
+	/**
+	 * Exact sign of the triangle area spanned by a, b and c: positive if c is
+	 * to the left of the line a->b (in tLine.triangleArea's orientation),
+	 * negative if it is to the right, and 0 if the three points are collinear.
+	 */
+	static int orientation(float ax, float ay, float bx, float by, float cx, float cy) {
+		return cross(ax, ay, bx, by, ax, ay, cx, cy);
+	}
+
+	/**
+	 * Exact sign of the cross product of the vectors a0->a1 and b0->b1:
+	 * positive if b0->b1 points to the left of a0->a1 (as for orientation),
+	 * negative if it points to the right, and 0 if the two are parallel.
+	 */
+	static int cross(float ax0, float ay0, float ax1, float ay1, float bx0, float by0, float bx1, float by1) {
+		double detLeft = ((double) ax1 - ax0) * ((double) by1 - by0);
+		double detRight = ((double) bx1 - bx0) * ((double) ay1 - ay0);
+		double det = detLeft - detRight;
+		double errorBound = ORIENT_ERROR_BOUND * (Math.abs(detLeft) + Math.abs(detRight));
+		if (det > errorBound)
+			return 1;
+		if (-det > errorBound)
+			return -1;
+		// infinities and NaNs have no exact value to escalate to; the
+		// double result is as good an answer as there is (0 for NaN)
+		if (!Double.isFinite(det) || !Double.isFinite(errorBound) || !isFinite(ax0, ay0, ax1, ay1)
+				|| !isFinite(bx0, by0, bx1, by1))
+			return det > 0 ? 1 : (det < 0 ? -1 : 0);
+		return crossExact(ax0, ay0, ax1, ay1, bx0, by0, bx1, by1);
+	}
+
+	private static boolean isFinite(float ax, float ay, float bx, float by) {
+		return Float.isFinite(ax) && Float.isFinite(ay) && Float.isFinite(bx) && Float.isFinite(by);
+	}
+
+	private static int crossExact(float ax0, float ay0, float ax1, float ay1, float bx0, float by0, float bx1,
+			float by1) {
+		// differences of floats are exact in double unless their exponents
+		// are very far apart; check, and fall back to BigDecimal if not
+		double adx = (double) ax1 - ax0;
+		double bdy = (double) by1 - by0;
+		double bdx = (double) bx1 - bx0;
+		double ady = (double) ay1 - ay0;
+		if (adx - ax1 + ax0 != 0 || bdy - by1 + by0 != 0 || bdx - bx1 + bx0 != 0 || ady - ay1 + ay0 != 0)
+			return crossBig(ax0, ay0, ax1, ay1, bx0, by0, bx1, by1);
+
+		// each product is exactly hi + lo (via fma); expand
+		// (leftHi + leftLo) - (rightHi + rightLo) exactly into four
+		// nonoverlapping components x3 > x2 > x1 > x0 (Shewchuk's
+		// Two_Two_Diff) and take the sign of the largest nonzero one
+		double leftHi = adx * bdy;
+		double leftLo = Math.fma(adx, bdy, -leftHi);
+		double rightHi = bdx * ady;
+		double rightLo = Math.fma(bdx, ady, -rightHi);
+
+		double i = leftLo - rightLo;
+		double bVirtual = leftLo - i;
+		double aVirtual = i + bVirtual;
+		double x0 = (leftLo - aVirtual) + (bVirtual - rightLo);
+		double j = leftHi + i;
+		bVirtual = j - leftHi;
+		aVirtual = j - bVirtual;
+		double t0 = (leftHi - aVirtual) + (i - bVirtual);
+		i = t0 - rightHi;
+		bVirtual = t0 - i;
+		aVirtual = i + bVirtual;
+		double x1 = (t0 - aVirtual) + (bVirtual - rightHi);
+		double x3 = j + i;
+		bVirtual = x3 - j;
+		aVirtual = x3 - bVirtual;
+		double x2 = (j - aVirtual) + (i - bVirtual);
+
+		if (x3 != 0)
+			return x3 > 0 ? 1 : -1;
+		if (x2 != 0)
+			return x2 > 0 ? 1 : -1;
+		if (x1 != 0)
+			return x1 > 0 ? 1 : -1;
+		return x0 > 0 ? 1 : (x0 < 0 ? -1 : 0);
+	}
+
+	private static int crossBig(float ax0, float ay0, float ax1, float ay1, float bx0, float by0, float bx1,
+			float by1) {
+		BigDecimal left = new BigDecimal(ax1).subtract(new BigDecimal(ax0))
+				.multiply(new BigDecimal(by1).subtract(new BigDecimal(by0)));
+		BigDecimal right = new BigDecimal(bx1).subtract(new BigDecimal(bx0))
+				.multiply(new BigDecimal(ay1).subtract(new BigDecimal(ay0)));
+		return left.compareTo(right);
+	}
+}
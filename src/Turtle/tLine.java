@@ -8,11 +8,9 @@ public class tLine
   public tPoint p1;
   public int state;    //penup pendown (current pen state)
   public float theta;  //angle (current angle)
-  PApplet myParent;
-  private int internalHeight;
-  private int internalWidth;
+  TurtleCanvas canvas; // where draw() sends the line, may be null
 
-  public tLine (tPoint p0Input, tPoint p1Input, float thetaInput, int stateInput, PApplet theParent)
+  public tLine (tPoint p0Input, tPoint p1Input, float thetaInput, int stateInput, TurtleCanvas canvasInput)
   {
     if (!((stateInput == penStates.PENDOWN) | (stateInput ==penStates.PENUP) | (stateInput==penStates.PENFAT) | (stateInput==penStates.FILLED)))
     {
@@ -25,26 +23,28 @@ public class tLine
     p1 = p1Input;
     this.state = stateInput;
     this.theta = thetaInput;
-    myParent = theParent;
-    internalHeight = theParent.height;
-    internalWidth = theParent.width;
+    canvas = canvasInput;
   }
 
-  tLine (PApplet theParent)
+  //for sketches: draw() and drawTurtle() go straight to theParent
+  public tLine (tPoint p0Input, tPoint p1Input, float thetaInput, int stateInput, PApplet theParent)
+  {
+    this(p0Input, p1Input, thetaInput, stateInput, theParent == null ? null : new tAppletCanvas(theParent));
+  }
+
+  tLine (TurtleCanvas canvasInput)
   {
     p0 = new tPoint();
     p1 = new tPoint();
     state = penStates.PENDOWN;
     theta = 0;
-    myParent = theParent;
-    internalHeight = theParent.height;
-    internalWidth = theParent.width;
+    canvas = canvasInput;
   }
 
   public void draw()
   {
-    if (state == penStates.PENDOWN | state == penStates.PENFAT)
-      myParent.line(this.p0.x,(internalHeight-(this.p0.y)),this.p1.x, (internalHeight-(this.p1.y)));
+    if (canvas != null && (state == penStates.PENDOWN | state == penStates.PENFAT))
+      canvas.line(this.p0.x,(canvas.getHeight()-(this.p0.y)),this.p1.x, (canvas.getHeight()-(this.p1.y)));
   }
   
   void drawTurtle()
@@ -57,7 +57,10 @@ public class tLine
     x3 = this.p0.x + (float)(Math.sin(Math.toRadians(this.theta+90))*5);
     y3 = this.p0.y + (float)(Math.cos(Math.toRadians(this.theta+90))*5);
     
-    myParent.triangle(x1, (internalHeight-y1), x2, (internalHeight-y2), x3, (internalHeight-y3));
+    if (canvas == null)
+      return;
+    int height = canvas.getHeight();
+    canvas.triangle(x1, height-y1, x2, height-y2, x3, height-y3);
   }
 
   //returns the area of the triangle made
@@ -81,79 +84,103 @@ public class tLine
     return ((this.p1.x-this.p0.x)*(l2.p1.x-l2.p0.x))+((this.p1.y-this.p0.y)*(l2.p1.y-l2.p0.y));
   }
   
+  //exact sign of triangleArea(p2), see tGeometry
+  int orientation(tPoint p2)
+  {
+    return tGeometry.orientation(this.p0.x, this.p0.y, this.p1.x, this.p1.y, p2.x, p2.y);
+  }
+
   boolean left(tPoint p2)
   {
-    return ((this.triangleArea(p2)) >= 0);
+    return (this.orientation(p2) >= 0);
   }
 
   boolean collinear(tPoint p2)
   {
-    if (this.triangleArea(p2) == 0)
+    if (this.orientation(p2) == 0)
       return true;
     return false;
   }
 
   boolean between(tPoint p2)
+  {
+    return between(this.p0.x, this.p0.y, this.p1.x, this.p1.y, p2.x, p2.y);
+  }
+
+  boolean intersectsProper(tLine l1)
+  {
+    return intersectsProper(this.p0.x, this.p0.y, this.p1.x, this.p1.y, this.state,
+                            l1.p0.x, l1.p0.y, l1.p1.x, l1.p1.y, l1.state);
+  }
+
+  boolean intersects(tLine l1)
+  {
+    return intersects(this.p0.x, this.p0.y, this.p1.x, this.p1.y, this.state,
+                      l1.p0.x, l1.p0.y, l1.p1.x, l1.p1.y, l1.state);
+  }
+
+  //the predicates below work on raw coordinates, so callers with lines
+  //stored in arrays can test them without allocating tLine objects.
+  //line a runs (ax0,ay0)->(ax1,ay1), line b runs (bx0,by0)->(bx1,by1)
+
+  //is point (px,py) strictly inside line (x0,y0)->(x1,y1)
+  static boolean between(float x0, float y0, float x1, float y1, float px, float py)
   {
     //first, make sure point p2 is *on* current line
-    if (! this.collinear(p2))
+    if (tGeometry.orientation(x0, y0, x1, y1, px, py) != 0)
       return false;
       
     //check to see if line is vertical
-    if (this.p0.x != this.p1.x)
+    if (x0 != x1)
     {
       //if not vertical, check to see if point overlaps in x
-      return (((this.p0.x < p2.x) && (p2.x < this.p1.x)) |
-              ((this.p0.x > p2.x) && (p2.x > this.p1.x)));
+      return (((x0 < px) && (px < x1)) |
+              ((x0 > px) && (px > x1)));
     }
     else
     {
       //if vertical, check to see if point overlaps in y
-      return (((this.p0.y < p2.y) && (p2.y < this.p1.y)) |
-              ((this.p0.y > p2.y) && (p2.y > this.p1.y)));
+      return (((y0 < py) && (py < y1)) |
+              ((y0 > py) && (py > y1)));
     }
   }
 
-  boolean intersectsProper(tLine l1)
+  static boolean intersectsProper(float ax0, float ay0, float ax1, float ay1, int aState,
+                                  float bx0, float by0, float bx1, float by1, int bState)
   {
     //penup lines don't count
-    if(l1.state == penStates.PENUP | this.state == penStates.PENUP)
+    if(aState == penStates.PENUP | bState == penStates.PENUP)
       return false;
 
+    int b0Side = tGeometry.orientation(ax0, ay0, ax1, ay1, bx0, by0);
+    int b1Side = tGeometry.orientation(ax0, ay0, ax1, ay1, bx1, by1);
+    int a0Side = tGeometry.orientation(bx0, by0, bx1, by1, ax0, ay0);
+    int a1Side = tGeometry.orientation(bx0, by0, bx1, by1, ax1, ay1);
+
     //collinear doesn't count
-    if (this.collinear(l1.p0) | this.collinear(l1.p1) | l1.collinear(this.p0) | l1.collinear(this.p1))
+    if (b0Side == 0 | b1Side == 0 | a0Side == 0 | a1Side == 0)
       return false;
 
-    if(this.left(l1.p0) | this.left(l1.p1))
-    {
-      if (this.left(l1.p0) && this.left(l1.p1))
-        return false;
-      if (l1.left(this.p0) | l1.left(this.p1))
-      {
-        if (l1.left(this.p0) && l1.left(this.p1))
-          return false;
-        else
-          return true;
-      }
-    }
-    return false;
+    //each line's endpoints must be on opposite sides of the other line
+    return (b0Side != b1Side) && (a0Side != a1Side);
   }
 
-  boolean intersects(tLine l1)
+  static boolean intersects(float ax0, float ay0, float ax1, float ay1, int aState,
+                            float bx0, float by0, float bx1, float by1, int bState)
   {
-    if (this.intersectsProper (l1))
+    if (intersectsProper(ax0, ay0, ax1, ay1, aState, bx0, by0, bx1, by1, bState))
     {
       //println("found proper intersection");
       return true;
     }
-    else if ( this.between(l1.p0) |
-      this.between(l1.p1) |
-      l1.between(this.p0) |
-      l1.between(this.p1))
+    else if ( between(ax0, ay0, ax1, ay1, bx0, by0) |
+      between(ax0, ay0, ax1, ay1, bx1, by1) |
+      between(bx0, by0, bx1, by1, ax0, ay0) |
+      between(bx0, by0, bx1, by1, ax1, ay1))
     {
       //println("found point on line intersection");
       return true;
     }
     return false;  
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,115 @@
+package Turtle;
+
+/**
+ * Growable store of turtle history segments. Each segment is kept as a row in
+ * a set of parallel primitive arrays (start point, end point, heading and pen
+ * state), so appending never copies more than the doubling growth requires.
+ */
+class tLineBuffer {
+	private static final int INITIAL_CAPACITY = 16;
+
+	float[] x0;
+	float[] y0;
+	float[] x1;
+	float[] y1;
+	float[] theta;
+	byte[] state;
+	private int size;
+
+	tLineBuffer() {
+		this(INITIAL_CAPACITY);
+	}
+
+	tLineBuffer(int capacity) {
+		if (capacity < 1)
+			capacity = 1;
+		x0 = new float[capacity];
+		y0 = new float[capacity];
+		x1 = new float[capacity];
+		y1 = new float[capacity];
+		theta = new float[capacity];
+		state = new byte[capacity];
+		size = 0;
+	}
+
+	/**
+	 * Append a segment to the end of the buffer, growing it if necessary.
+	 */
+	void add(float startX, float startY, float endX, float endY, float heading, int penState) {
+		if (size == state.length)
+			grow(size + 1);
+		x0[size] = startX;
+		y0[size] = startY;
+		x1[size] = endX;
+		y1[size] = endY;
+		theta[size] = heading;
+		state[size] = (byte) penState;
+		size++;
+	}
+
+	/**
+	 * Make room for at least capacity segments without further growth.
+	 */
+	void ensureCapacity(int capacity) {
+		if (capacity > state.length)
+			grow(capacity);
+	}
+
+	/**
+	 * Remove the last segment, if there is one.
+	 */
+	void removeLast() {
+		if (size > 0)
+			size--;
+	}
+
+	/**
+	 * Forget every segment but keep the allocated storage for reuse.
+	 */
+	void clear() {
+		size = 0;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Build a tLine object for a stored segment. Allocates, so only meant for
+	 * callers that really need the object form.
+	 */
+	tLine get(int i, TurtleCanvas canvas) {
+		return new tLine(new tPoint(x0[i], y0[i]), new tPoint(x1[i], y1[i]), theta[i], state[i], canvas);
+	}
+
+	// true if the segment leaves a mark on the page
+	boolean isDrawn(int i) {
+		return state[i] == penStates.PENDOWN | state[i] == penStates.PENFAT;
+	}
+
+	// useful for debugging
+	void printLine(int i) {
+		System.out.println("[(" + (int) x0[i] + ", " + (int) y0[i] + ") , (" + (int) x1[i] + ", " + (int) y1[i]
+				+ ") , theta: " + theta[i] + "]");
+	}
+
+	private void grow(int minCapacity) {
+		int capacity = state.length * 2;
+		if (capacity < minCapacity)
+			capacity = minCapacity;
+		x0 = copyOf(x0, capacity);
+		y0 = copyOf(y0, capacity);
+		x1 = copyOf(x1, capacity);
+		y1 = copyOf(y1, capacity);
+		theta = copyOf(theta, capacity);
+		byte[] newState = new byte[capacity];
+		System.arraycopy(state, 0, newState, 0, size);
+		state = newState;
+	}
+
+	private float[] copyOf(float[] array, int capacity) {
+		float[] finalArray = new float[capacity];
+		System.arraycopy(array, 0, finalArray, 0, size);
+		return finalArray;
+	}
+}
@@ -0,0 +1,161 @@
+package Turtle;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Stream over the moves of a TurtleFile, read from a memory-mapped window
+ * onto the file. The window is moved forward a block at a time as needed,
+ * so files larger than a single mapping can be read. Moves of uncompressed
+ * blocks are read in place; compressed blocks are inflated into a buffer
+ * that is reused for every block.
+ */
+class tMappedStream implements TurtleMoveStream {
+	// bytes mapped at a time, unless a single block needs more
+	private static final long WINDOW_SIZE = 1L << 28;
+
+	private final TurtleFile file;
+	private MappedByteBuffer window;
+	private long windowStart;
+
+	private ByteBuffer block; // buffer holding the current block's moves
+	private int opsAt; // index of the block's first opcode in block
+	private int amountsAt; // index of the block's first amount in block
+	private int blockSize; // number of moves in the current block
+	private int index; // number of moves of the current block already read
+	private long nextBlock; // file offset of the next block's header
+	private int blocksLeft;
+	private long movesLeft;
+
+	private Inflater inflater;
+	private byte[] packed;
+	private byte[] unpacked;
+	private ByteBuffer unpackedBuffer;
+
+	private byte op;
+	private float amount;
+
+	tMappedStream(TurtleFile fileInput) {
+		file = fileInput;
+		nextBlock = TurtleFile.HEADER_SIZE;
+		blocksLeft = file.blockCount;
+		movesLeft = file.moveCount;
+	}
+
+	public boolean next() {
+		if (movesLeft == 0) {
+			finish();
+			return false;
+		}
+		while (index == blockSize) {
+			if (blocksLeft == 0)
+				throw damaged();
+			loadBlock();
+		}
+		op = block.get(opsAt + index);
+		if (op < TurtleProgram.FORWARD || op > TurtleProgram.RIGHT)
+			throw damaged();
+		amount = block.getFloat(amountsAt + 4 * index);
+		index++;
+		movesLeft--;
+		return true;
+	}
+
+	public byte getOp() {
+		return op;
+	}
+
+	public float getAmount() {
+		return amount;
+	}
+
+	// make the next block the current one
+	private void loadBlock() {
+		map(nextBlock, TurtleFile.BLOCK_HEADER_SIZE);
+		int at = (int) (nextBlock - windowStart);
+		int moves = window.getInt(at);
+		int stored = window.getInt(at + 4);
+		// the writer never stores more than its deflate buffer holds
+		if (moves < 0 || moves > file.blockMoves || stored < 0 || stored > 5 * file.blockMoves + 1024
+				|| (!file.compressed && stored != 5L * moves))
+			throw damaged();
+		long payload = nextBlock + TurtleFile.BLOCK_HEADER_SIZE;
+		map(payload, stored);
+		at = (int) (payload - windowStart);
+		if (file.compressed) {
+			inflate(at, stored, moves);
+			block = unpackedBuffer;
+			opsAt = 0;
+		} else {
+			block = window;
+			opsAt = at;
+		}
+		amountsAt = opsAt + moves;
+		blockSize = moves;
+		index = 0;
+		nextBlock = payload + stored;
+		blocksLeft--;
+	}
+
+	// inflate stored bytes at offset at of the window into unpacked
+	private void inflate(int at, int stored, int moves) {
+		if (inflater == null) {
+			inflater = new Inflater();
+			unpacked = new byte[5 * file.blockMoves];
+			unpackedBuffer = ByteBuffer.wrap(unpacked);
+		}
+		if (packed == null || packed.length < stored)
+			packed = new byte[Math.max(stored, 1024)];
+		window.position(at);
+		window.get(packed, 0, stored);
+		inflater.reset();
+		inflater.setInput(packed, 0, stored);
+		try {
+			int length = 0;
+			while (length < 5 * moves && !inflater.finished()) {
+				int n = inflater.inflate(unpacked, length, 5 * moves - length);
+				if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+					break;
+				length += n;
+			}
+			if (length != 5 * moves)
+				throw damaged();
+		} catch (DataFormatException e) {
+			throw new UncheckedIOException(new IOException(file.path + " is damaged", e));
+		}
+	}
+
+	// make sure the window covers length bytes from offset from of the file
+	private void map(long from, long length) {
+		if (from + length > file.fileSize)
+			throw damaged();
+		if (window != null && from >= windowStart && from + length <= windowStart + window.capacity())
+			return;
+		long size = Math.min(file.fileSize - from, Math.max(WINDOW_SIZE, length));
+		try (FileChannel channel = FileChannel.open(file.path, StandardOpenOption.READ)) {
+			window = channel.map(FileChannel.MapMode.READ_ONLY, from, size);
+			windowStart = from;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void finish() {
+		if (inflater != null) {
+			inflater.end();
+			inflater = null;
+		}
+		window = null;
+		block = null;
+	}
+
+	private UncheckedIOException damaged() {
+		return new UncheckedIOException(new IOException(file.path + " is damaged or truncated"));
+	}
+}
@@ -0,0 +1,101 @@
+package Turtle;
+
+/**
+ * Reads the moves of a tMoveNode in order, depth first, without expanding
+ * repeats or copying anything. One stack frame is kept per level of nesting,
+ * each with the direction and scale the views above it call for.
+ */
+class tMoveCursor implements TurtleMoveStream {
+	private tMoveNode[] nodes = new tMoveNode[8];
+	// per frame: moves of a leaf read, or repetitions done
+	private long[] counters = new long[8];
+	private boolean[] reversed = new boolean[8];
+	private float[] scales = new float[8];
+	private int top = -1;
+	private byte op;
+	private float amount;
+
+	tMoveCursor(tMoveNode root) {
+		if (root != null)
+			push(root, false, 1);
+	}
+
+	/**
+	 * Read the moves of roots[0 .. count), one node after another.
+	 */
+	tMoveCursor(tMoveNode[] roots, int count) {
+		for (int i = count - 1; i >= 0; i--) {
+			push(roots[i], false, 1);
+		}
+	}
+
+	public boolean next() {
+		while (top >= 0) {
+			tMoveNode node = nodes[top];
+			long counter = counters[top];
+			boolean backwards = reversed[top];
+			if (node instanceof tMoveLeaf) {
+				tMoveLeaf leaf = (tMoveLeaf) node;
+				if (counter < leaf.length) {
+					int i = (int) (backwards ? leaf.length - 1 - counter : counter);
+					op = backwards ? tMoveLeaf.reverse(leaf.ops[i]) : leaf.ops[i];
+					amount = tMoveLeaf.isLine(op) ? leaf.amounts[i] * scales[top] : leaf.amounts[i];
+					counters[top] = counter + 1;
+					return true;
+				}
+				top--;
+			} else if (node instanceof tRepeatNode) {
+				tRepeatNode repeat = (tRepeatNode) node;
+				if (counter < repeat.count) {
+					counters[top] = counter + 1;
+					push(repeat.body, backwards, scales[top]);
+				} else {
+					top--;
+				}
+			} else if (node instanceof tViewNode) {
+				// the frame takes on the view's source and flags
+				tViewNode view = (tViewNode) node;
+				nodes[top] = view.source;
+				reversed[top] = backwards ^ view.reversed;
+				scales[top] *= view.scale;
+			} else {
+				// the frame moves on to the second side once the first side is pushed
+				tConcatNode concat = (tConcatNode) node;
+				nodes[top] = backwards ? concat.left : concat.right;
+				push(backwards ? concat.right : concat.left, backwards, scales[top]);
+			}
+		}
+		return false;
+	}
+
+	public byte getOp() {
+		return op;
+	}
+
+	public float getAmount() {
+		return amount;
+	}
+
+	private void push(tMoveNode node, boolean backwards, float scale) {
+		top++;
+		if (top == nodes.length) {
+			int capacity = nodes.length * 2;
+			tMoveNode[] newNodes = new tMoveNode[capacity];
+			long[] newCounters = new long[capacity];
+			boolean[] newReversed = new boolean[capacity];
+			float[] newScales = new float[capacity];
+			System.arraycopy(nodes, 0, newNodes, 0, top);
+			System.arraycopy(counters, 0, newCounters, 0, top);
+			System.arraycopy(reversed, 0, newReversed, 0, top);
+			System.arraycopy(scales, 0, newScales, 0, top);
+			nodes = newNodes;
+			counters = newCounters;
+			reversed = newReversed;
+			scales = newScales;
+		}
+		nodes[top] = node;
+		counters[top] = 0;
+		reversed[top] = backwards;
+		scales[top] = scale;
+	}
+}
@@ -0,0 +1,33 @@
+package Turtle;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator over the moves of a TurtleMoveStream, creating a new TurtleMove
+ * for each one.
+ */
+class tMoveIterator implements Iterator<TurtleMove> {
+	private final TurtleMoveStream moves;
+	private boolean ready = false;
+	private boolean more = false;
+
+	tMoveIterator(TurtleMoveStream movesInput) {
+		moves = movesInput;
+	}
+
+	public boolean hasNext() {
+		if (!ready) {
+			more = moves.next();
+			ready = true;
+		}
+		return more;
+	}
+
+	public TurtleMove next() {
+		if (!hasNext())
+			throw new NoSuchElementException();
+		ready = false;
+		return new TurtleMove(TurtleMove.typeOf(moves.getOp()), moves.getAmount());
+	}
+}
@@ -0,0 +1,169 @@
+package Turtle;
+
+/**
+ * A flat run of moves, kept as a byte opcode array and a float amount array
+ * (see TurtleProgram for the opcodes) rather than as TurtleMove objects. The
+ * last leaf of a TurtleInstructions is still being appended to; every other
+ * leaf is frozen, and its line count and transform are computed once, the
+ * first time they are needed.
+ */
+class tMoveLeaf extends tMoveNode {
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int CHUNK_SIZE = 4096; // longest leaf once frozen
+
+	byte[] ops;
+	float[] amounts;
+	int length;
+	private long lines = -1;
+	private tTransform transform;
+
+	tMoveLeaf() {
+		this(INITIAL_CAPACITY);
+	}
+
+	tMoveLeaf(int capacity) {
+		ops = new byte[Math.max(capacity, 1)];
+		amounts = new float[Math.max(capacity, 1)];
+		length = 0;
+	}
+
+	/**
+	 * Append a move; only done to the leaf a TurtleInstructions is still building.
+	 * Cached values are brought up to date rather than thrown away.
+	 */
+	void add(byte op, float amount) {
+		if (length == ops.length)
+			resize(length * 2);
+		ops[length] = op;
+		amounts[length] = amount;
+		length++;
+		if (lines >= 0 && isLine(op))
+			lines++;
+		if (transform != null)
+			transform = transform.then(tTransform.of(op, amount));
+	}
+
+	/**
+	 * Change the amount of move i of a leaf that is still being built.
+	 */
+	void setAmount(int i, float amount) {
+		amounts[i] = amount;
+		transform = null;
+	}
+
+	/**
+	 * Remove the last move of a leaf that is still being built.
+	 */
+	void removeLast() {
+		length--;
+		lines = -1;
+		transform = null;
+	}
+
+	/**
+	 * This leaf as a frozen node: trimmed to size, and cut into a balanced
+	 * tree of chunks if it is long, so that slicing never copies much.
+	 */
+	tMoveNode freeze() {
+		if (length <= CHUNK_SIZE) {
+			if (length < ops.length)
+				resize(length);
+			return this;
+		}
+		tMoveNode[] chunks = new tMoveNode[(length + CHUNK_SIZE - 1) / CHUNK_SIZE];
+		for (int c = 0; c < chunks.length; c++) {
+			int from = c * CHUNK_SIZE;
+			chunks[c] = copy(from, Math.min(length, from + CHUNK_SIZE));
+		}
+		return tConcatNode.build(chunks, 0, chunks.length);
+	}
+
+	/**
+	 * Move i as a new TurtleMove.
+	 */
+	TurtleMove move(int i) {
+		return new TurtleMove(TurtleMove.typeOf(ops[i]), amounts[i]);
+	}
+
+	long size() {
+		return length;
+	}
+
+	long lines() {
+		if (lines < 0) {
+			long count = 0;
+			for (int i = 0; i < length; i++) {
+				if (isLine(ops[i]))
+					count++;
+			}
+			lines = count;
+		}
+		return lines;
+	}
+
+	tTransform transform() {
+		if (transform == null) {
+			double x = 0;
+			double y = 0;
+			double theta = 0;
+			for (int i = 0; i < length; i++) {
+				switch (ops[i]) {
+					case TurtleProgram.FORWARD:
+						x += amounts[i] * Math.cos(Math.toRadians(theta));
+						y += amounts[i] * Math.sin(Math.toRadians(theta));
+						break;
+					case TurtleProgram.BACK:
+						x -= amounts[i] * Math.cos(Math.toRadians(theta));
+						y -= amounts[i] * Math.sin(Math.toRadians(theta));
+						break;
+					case TurtleProgram.LEFT:
+						theta = (theta + amounts[i]) % 360;
+						break;
+					case TurtleProgram.RIGHT:
+						theta = (theta - amounts[i]) % 360;
+						break;
+				}
+			}
+			transform = new tTransform(x, y, theta);
+		}
+		return transform;
+	}
+
+	tMoveNode slice(long from, long to) {
+		if (from == 0 && to == length)
+			return this;
+		return copy((int) from, (int) to);
+	}
+
+	// a new leaf holding moves from .. to
+	private tMoveLeaf copy(int from, int to) {
+		tMoveLeaf leaf = new tMoveLeaf(to - from);
+		System.arraycopy(ops, from, leaf.ops, 0, to - from);
+		System.arraycopy(amounts, from, leaf.amounts, 0, to - from);
+		leaf.length = to - from;
+		return leaf;
+	}
+
+	static boolean isLine(byte op) {
+		return op == TurtleProgram.FORWARD || op == TurtleProgram.BACK;
+	}
+
+	// FORWARD and BACK swap, as do LEFT and RIGHT
+	static byte reverse(byte op) {
+		switch (op) {
+			case TurtleProgram.FORWARD: return TurtleProgram.BACK;
+			case TurtleProgram.BACK: return TurtleProgram.FORWARD;
+			case TurtleProgram.LEFT: return TurtleProgram.RIGHT;
+			default: return TurtleProgram.LEFT;
+		}
+	}
+
+	private void resize(int capacity) {
+		byte[] newOps = new byte[Math.max(capacity, 1)];
+		float[] newAmounts = new float[Math.max(capacity, 1)];
+		System.arraycopy(ops, 0, newOps, 0, length);
+		System.arraycopy(amounts, 0, newAmounts, 0, length);
+		ops = newOps;
+		amounts = newAmounts;
+	}
+}
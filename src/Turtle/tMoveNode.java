@@ -0,0 +1,86 @@
+package Turtle;
+
+/**
+ * Node of the structure TurtleInstructions keeps its moves in. A node is a
+ * flat run of moves ({@link tMoveLeaf}), two nodes one after the other
+ * ({@link tConcatNode}), a body repeated a number of times
+ * ({@link tRepeatNode}) or a reversed and/or scaled view of another node
+ * ({@link tViewNode}). Nodes never change once they have been handed out,
+ * so they can be shared between TurtleInstructions freely; every node
+ * remembers its length, its number of lines and the net transform of its
+ * moves.
+ */
+abstract class tMoveNode {
+
+	/**
+	 * Number of moves, counting every repetition.
+	 */
+	abstract long size();
+
+	/**
+	 * Number of FORWARD and BACK moves, counting every repetition.
+	 */
+	abstract long lines();
+
+	/**
+	 * Net effect of all the moves, see tTransform.
+	 */
+	abstract tTransform transform();
+
+	/**
+	 * A node with the moves in the opposite order, each one reversed.
+	 * Takes constant time.
+	 */
+	tMoveNode reversed() {
+		return tViewNode.of(this, true, 1);
+	}
+
+	/**
+	 * A node with every length multiplied by factor. Takes constant time.
+	 */
+	tMoveNode dilated(float factor) {
+		return tViewNode.of(this, false, factor);
+	}
+
+	/**
+	 * The moves from index from (inclusive) to index to (exclusive), sharing
+	 * as much of this node as possible.
+	 */
+	abstract tMoveNode slice(long from, long to);
+
+	/**
+	 * The i-th move of node, as a new TurtleMove.
+	 */
+	static TurtleMove moveAt(tMoveNode node, long i) {
+		boolean reversed = false;
+		float scale = 1;
+		while (true) {
+			if (node instanceof tMoveLeaf) {
+				tMoveLeaf leaf = (tMoveLeaf) node;
+				int index = (int) (reversed ? leaf.length - 1 - i : i);
+				byte op = reversed ? tMoveLeaf.reverse(leaf.ops[index]) : leaf.ops[index];
+				float amount = tMoveLeaf.isLine(op) ? leaf.amounts[index] * scale : leaf.amounts[index];
+				return new TurtleMove(TurtleMove.typeOf(op), amount);
+			} else if (node instanceof tRepeatNode) {
+				tMoveNode body = ((tRepeatNode) node).body;
+				i = i % body.size();
+				node = body;
+			} else if (node instanceof tViewNode) {
+				tViewNode view = (tViewNode) node;
+				reversed ^= view.reversed;
+				scale *= view.scale;
+				node = view.source;
+			} else {
+				tConcatNode concat = (tConcatNode) node;
+				tMoveNode first = reversed ? concat.right : concat.left;
+				long firstSize = first.size();
+				if (i < firstSize) {
+					node = first;
+				} else {
+					i -= firstSize;
+					node = reversed ? concat.left : concat.right;
+				}
+			}
+		}
+	}
+}
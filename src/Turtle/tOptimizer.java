@@ -0,0 +1,242 @@
+package Turtle;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+/**
+ * TurtleInstructions.optimize() applied to a node without expanding it.
+ * Every distinct node is optimized once, so shared subtrees stay shared:
+ * a leaf is simplified move by move, a concat node joins its optimized
+ * children, a view shows the optimized source, and a repeat node repeats its
+ * optimized body. Moves can only merge where two optimized pieces meet (or
+ * where a body meets its next repetition), so only the moves at those seams
+ * are ever taken apart.
+ */
+final class tOptimizer {
+	// optimized form of every node seen so far; null values are empty nodes
+	private final IdentityHashMap<tMoveNode, tMoveNode> done = new IdentityHashMap<tMoveNode, tMoveNode>();
+
+	private tOptimizer() {
+	}
+
+	/**
+	 * The optimized form of node, or null if nothing is left of it.
+	 */
+	static tMoveNode optimize(tMoveNode node) {
+		return node == null ? null : new tOptimizer().optimized(node);
+	}
+
+	private tMoveNode optimized(tMoveNode node) {
+		if (done.containsKey(node))
+			return done.get(node);
+		tMoveNode result;
+		if (node instanceof tMoveLeaf) {
+			tMoveLeaf leaf = (tMoveLeaf) node;
+			Builder builder = new Builder();
+			for (int i = 0; i < leaf.length; i++)
+				builder.add(leaf.ops[i], leaf.amounts[i]);
+			result = builder.build();
+		} else if (node instanceof tConcatNode) {
+			tConcatNode concat = (tConcatNode) node;
+			Builder builder = new Builder();
+			builder.append(optimized(concat.left));
+			builder.append(optimized(concat.right));
+			result = builder.build();
+		} else if (node instanceof tViewNode) {
+			tViewNode view = (tViewNode) node;
+			if (view.scale == 0) {
+				// every line vanishes, so turns on either side of them meet
+				Builder builder = new Builder();
+				tMoveCursor moves = new tMoveCursor(view);
+				while (moves.next())
+					builder.add(moves.getOp(), moves.getAmount());
+				result = builder.build();
+			} else {
+				// scaling by a nonzero factor and reversing change no merge
+				tMoveNode source = optimized(view.source);
+				result = source == null ? null : tViewNode.of(source, view.reversed, view.scale);
+			}
+		} else {
+			tRepeatNode repeat = (tRepeatNode) node;
+			result = repeated(optimized(repeat.body), repeat.count);
+		}
+		done.put(node, result);
+		return result;
+	}
+
+	// body, already optimized, performed count times and optimized
+	private static tMoveNode repeated(tMoveNode body, long count) {
+		if (body == null || count == 0)
+			return null;
+		// body = first, inner, last; when last and first cancel out,
+		// body^count = first, inner^count, last, so peel them off and go on
+		ArrayList<tMoveNode> before = new ArrayList<tMoveNode>();
+		ArrayList<tMoveNode> after = new ArrayList<tMoveNode>();
+		tMoveNode core;
+		while (true) {
+			long size = body.size();
+			TurtleMove firstMove = tMoveNode.moveAt(body, 0);
+			byte firstOp = firstMove.opcode();
+			float firstAmount = firstMove.amount;
+			if (size == 1) {
+				// one move repeated is one bigger move
+				double total = (double) signedAmount(firstOp, firstAmount) * count;
+				if (!tMoveLeaf.isLine(firstOp))
+					total = total % 360;
+				core = total == 0 ? null : single(firstOp, signedAmount(firstOp, (float) total));
+				break;
+			}
+			TurtleMove lastMove = tMoveNode.moveAt(body, size - 1);
+			byte lastOp = lastMove.opcode();
+			float lastAmount = lastMove.amount;
+			if (count == 1 || !mergeable(lastOp, lastAmount, firstOp, firstAmount)) {
+				core = count == 1 ? body : new tRepeatNode(body, count);
+				break;
+			}
+			tMoveNode first = body.slice(0, 1);
+			tMoveNode inner = body.slice(1, size - 1);
+			tMoveNode last = body.slice(size - 1, size);
+			Builder seam = new Builder();
+			seam.add(lastOp, lastAmount);
+			seam.add(firstOp, firstAmount);
+			tMoveNode merged = seam.build();
+			if (merged != null) {
+				// body^count = first, (inner, merged)^(count - 1), inner, last
+				tMoveNode middle = tConcatNode.join(inner, merged);
+				Builder builder = new Builder();
+				builder.append(first);
+				builder.append(count == 2 ? middle : new tRepeatNode(middle, count - 1));
+				builder.append(inner);
+				builder.append(last);
+				core = builder.build();
+				break;
+			}
+			before.add(first);
+			after.add(last);
+			body = inner;
+		}
+		Builder builder = new Builder();
+		for (int i = 0; i < before.size(); i++)
+			builder.append(before.get(i));
+		builder.append(core);
+		for (int i = after.size() - 1; i >= 0; i--)
+			builder.append(after.get(i));
+		return builder.build();
+	}
+
+	// whether a move followed by another collapses into at most one move
+	private static boolean mergeable(byte prevOp, float prevAmount, byte op, float amount) {
+		boolean prevIsTurn = !tMoveLeaf.isLine(prevOp);
+		boolean isTurn = !tMoveLeaf.isLine(op);
+		if (prevIsTurn || isTurn)
+			return prevIsTurn && isTurn;
+		return (signedAmount(prevOp, prevAmount) > 0) == (signedAmount(op, amount) > 0);
+	}
+
+	// the magnitude of a move with its direction folded into the sign:
+	// FORWARD and LEFT count as positive, BACK and RIGHT as negative
+	private static float signedAmount(byte op, float amount) {
+		if (op == TurtleProgram.FORWARD || op == TurtleProgram.LEFT)
+			return amount;
+		return -amount;
+	}
+
+	private static tMoveLeaf single(byte op, float amount) {
+		tMoveLeaf leaf = new tMoveLeaf(1);
+		leaf.add(op, amount);
+		return leaf;
+	}
+
+	/**
+	 * Optimized moves and optimized nodes laid end to end, merging the moves
+	 * on either side of each seam. Finished nodes are kept whole; only the
+	 * last move before a seam is ever pulled back out to merge.
+	 */
+	private static class Builder {
+		private tMoveNode finished;
+		private tMoveLeaf pending = new tMoveLeaf();
+
+		// appends a single move, merging it with the move before if it can
+		void add(byte op, float amount) {
+			boolean isTurn = !tMoveLeaf.isLine(op);
+			float signed = signedAmount(op, amount);
+			if (isTurn)
+				signed = signed % 360;
+			if (signed == 0)
+				return;
+			if (pending.length == 0 && finished != null) {
+				long size = finished.size();
+				TurtleMove prev = tMoveNode.moveAt(finished, size - 1);
+				byte prevOp = prev.opcode();
+				float prevAmount = prev.amount;
+				if (!mergeable(prevOp, prevAmount, op, amount)) {
+					pending.add(op, amount);
+					return;
+				}
+				finished = size == 1 ? null : finished.slice(0, size - 1);
+				pending.add(prevOp, prevAmount);
+			}
+			int last = pending.length - 1;
+			if (last >= 0) {
+				byte prevOp = pending.ops[last];
+				boolean prevIsTurn = !tMoveLeaf.isLine(prevOp);
+				float prevSigned = signedAmount(prevOp, pending.amounts[last]);
+				if (isTurn && prevIsTurn) {
+					// turns always combine; drop the pair if they cancel
+					float total = (prevSigned + signed) % 360;
+					if (total == 0)
+						pending.removeLast();
+					else
+						pending.setAmount(last, prevOp == TurtleProgram.LEFT ? total : -total);
+					return;
+				}
+				if (!isTurn && !prevIsTurn && (prevSigned > 0) == (signed > 0)) {
+					// lines in the same direction join into one longer line
+					float total = prevSigned + signed;
+					pending.setAmount(last, prevOp == TurtleProgram.FORWARD ? total : -total);
+					return;
+				}
+			}
+			pending.add(op, amount);
+		}
+
+		// appends an optimized node, which may be null
+		void append(tMoveNode node) {
+			while (node != null) {
+				TurtleMove first = tMoveNode.moveAt(node, 0);
+				if (!mergesWithEnd(first.opcode(), first.amount))
+					break;
+				add(first.opcode(), first.amount);
+				long size = node.size();
+				node = size == 1 ? null : node.slice(1, size);
+			}
+			if (node == null)
+				return;
+			flush();
+			finished = tConcatNode.join(finished, node);
+		}
+
+		tMoveNode build() {
+			flush();
+			return finished;
+		}
+
+		private boolean mergesWithEnd(byte op, float amount) {
+			if (pending.length > 0) {
+				int last = pending.length - 1;
+				return mergeable(pending.ops[last], pending.amounts[last], op, amount);
+			}
+			if (finished == null)
+				return false;
+			TurtleMove prev = tMoveNode.moveAt(finished, finished.size() - 1);
+			return mergeable(prev.opcode(), prev.amount, op, amount);
+		}
+
+		private void flush() {
+			if (pending.length > 0) {
+				finished = tConcatNode.join(finished, pending.freeze());
+				pending = new tMoveLeaf();
+			}
+		}
+	}
+}
@@ -0,0 +1,250 @@
+package Turtle;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Single-pass parser for the text form of a sequence of moves, such as
+ * "F10 L90 R45 B5 4[F10 R90]". Moves are written straight into the
+ * TurtleInstructions being built, so no object is created per move, and a
+ * bracketed section becomes a single repeat node however many times it is
+ * repeated. Text is read either from a CharSequence or, for files, from a
+ * channel through a reused byte buffer, so files are never held in memory
+ * whole.
+ *
+ * Grammar: a program is a list of items separated by optional whitespace
+ * or commas. An item is a letter F, B, L or R (either case) followed by a
+ * number, or a whole number followed by a bracketed program. Anything from
+ * '#' to the end of the line is a comment.
+ */
+class tParser {
+	private static final int END = -1;
+	private static final double[] POWERS_OF_TEN = new double[23]; // exact in a double
+
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++)
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+	}
+
+	private final CharSequence text;
+	private final ReadableByteChannel channel;
+	private final ByteBuffer buffer;
+	private int position;
+
+	private int c; // current character, END at the end of the input
+	private long line = 1;
+	private long column = 0;
+
+	// open brackets: the sequence outside each, and its repeat count
+	private TurtleInstructions[] outer = new TurtleInstructions[8];
+	private int[] counts = new int[8];
+	private int depth = 0;
+
+	tParser(CharSequence textInput) {
+		text = textInput;
+		channel = null;
+		buffer = null;
+	}
+
+	tParser(ReadableByteChannel channelInput) {
+		text = null;
+		channel = channelInput;
+		buffer = ByteBuffer.allocateDirect(1 << 20);
+		buffer.flip();
+	}
+
+	/**
+	 * Parse the whole input, appending its moves to ti.
+	 */
+	void parseInto(TurtleInstructions ti) throws IOException {
+		advance();
+		while (true) {
+			skipSeparators();
+			if (c == END)
+				break;
+			switch (c) {
+				case 'F':
+				case 'f':
+					advance();
+					ti.add(TurtleProgram.FORWARD, number());
+					break;
+				case 'B':
+				case 'b':
+					advance();
+					ti.add(TurtleProgram.BACK, number());
+					break;
+				case 'L':
+				case 'l':
+					advance();
+					ti.add(TurtleProgram.LEFT, number());
+					break;
+				case 'R':
+				case 'r':
+					advance();
+					ti.add(TurtleProgram.RIGHT, number());
+					break;
+				case ']':
+					if (depth == 0)
+						throw error("']' without a matching '['");
+					advance();
+					depth--;
+					ti.repeat(counts[depth]);
+					outer[depth].then(ti);
+					ti = outer[depth];
+					outer[depth] = null;
+					break;
+				default:
+					if (c < '0' || c > '9')
+						throw error("unexpected " + describe(c));
+					int count = count();
+					skipSeparators();
+					if (c != '[')
+						throw error("expected '[' after repeat count");
+					advance();
+					open(ti, count);
+					ti = new TurtleInstructions();
+			}
+		}
+		if (depth > 0)
+			throw error("missing ']'");
+	}
+
+	private void open(TurtleInstructions ti, int count) {
+		if (depth == outer.length) {
+			TurtleInstructions[] newOuter = new TurtleInstructions[2 * depth];
+			System.arraycopy(outer, 0, newOuter, 0, depth);
+			outer = newOuter;
+			int[] newCounts = new int[2 * depth];
+			System.arraycopy(counts, 0, newCounts, 0, depth);
+			counts = newCounts;
+		}
+		outer[depth] = ti;
+		counts[depth] = count;
+		depth++;
+	}
+
+	// a repeat count: a whole number that fits in an int
+	private int count() throws IOException {
+		long n = 0;
+		while (c >= '0' && c <= '9') {
+			n = 10 * n + (c - '0');
+			if (n > Integer.MAX_VALUE)
+				throw error("repeat count too large");
+			advance();
+		}
+		return (int) n;
+	}
+
+	// a decimal number with optional sign, fraction and exponent
+	private float number() throws IOException {
+		while (c == ' ' | c == '\t')
+			advance();
+		boolean negative = c == '-';
+		if (c == '-' | c == '+')
+			advance();
+		long mantissa = 0;
+		int digits = 0; // significant digits kept in mantissa
+		int exponent = 0;
+		boolean any = false;
+		while (c >= '0' && c <= '9') {
+			any = true;
+			if (digits < 18) {
+				mantissa = 10 * mantissa + (c - '0');
+				if (mantissa != 0)
+					digits++;
+			} else {
+				exponent++;
+			}
+			advance();
+		}
+		if (c == '.') {
+			advance();
+			while (c >= '0' && c <= '9') {
+				any = true;
+				if (digits < 18) {
+					mantissa = 10 * mantissa + (c - '0');
+					if (mantissa != 0)
+						digits++;
+					exponent--;
+				}
+				advance();
+			}
+		}
+		if (!any)
+			throw error("expected a number");
+		if (c == 'e' | c == 'E') {
+			advance();
+			boolean negativeExponent = c == '-';
+			if (c == '-' | c == '+')
+				advance();
+			if (c < '0' || c > '9')
+				throw error("expected an exponent");
+			int e = 0;
+			while (c >= '0' && c <= '9') {
+				if (e < 100000)
+					e = 10 * e + (c - '0');
+				advance();
+			}
+			exponent += negativeExponent ? -e : e;
+		}
+		float value;
+		if (mantissa == 0)
+			value = 0;
+		else if (exponent >= 0 && exponent < POWERS_OF_TEN.length && mantissa < (1L << 53))
+			value = (float) (mantissa * POWERS_OF_TEN[exponent]);
+		else if (exponent < 0 && -exponent < POWERS_OF_TEN.length && mantissa < (1L << 53))
+			value = (float) (mantissa / POWERS_OF_TEN[-exponent]);
+		else
+			value = new BigDecimal(BigInteger.valueOf(mantissa), -exponent).floatValue();
+		return negative ? -value : value;
+	}
+
+	private void skipSeparators() throws IOException {
+		while (true) {
+			if (c == ' ' | c == ',' | c == '\t' | c == '\n' | c == '\r') {
+				advance();
+			} else if (c == '#') {
+				while (c != '\n' & c != END)
+					advance();
+			} else {
+				return;
+			}
+		}
+	}
+
+	private void advance() throws IOException {
+		if (c == '\n') {
+			line++;
+			column = 0;
+		}
+		column++;
+		if (text != null) {
+			c = position < text.length() ? text.charAt(position++) : END;
+			return;
+		}
+		if (!buffer.hasRemaining()) {
+			buffer.clear();
+			int n = 0;
+			while (n == 0)
+				n = channel.read(buffer);
+			buffer.flip();
+			if (n < 0) {
+				c = END;
+				return;
+			}
+		}
+		c = buffer.get() & 0xFF;
+	}
+
+	private static String describe(int ch) {
+		return ch == END ? "end of input" : "'" + (char) ch + "'";
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException("line " + line + ", column " + column + ": " + message);
+	}
+}
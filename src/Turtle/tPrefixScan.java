@@ -0,0 +1,192 @@
+package Turtle;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parallel prefix scan turning a TurtleProgram into the absolute positions
+ * the Turtle passes through. The program is cut into blocks. Headings are
+ * added up first, in float and in order, exactly as the Turtle adds up
+ * currentTheta, which costs a single add per turn; that gives every block
+ * its starting heading. The blocks' displacements are then found in
+ * parallel, chained together to give every block its starting position,
+ * and each block replays its own moves in parallel from that start,
+ * writing its vertices into its slice of the result. The scan so takes
+ * exactly the Turtle's headings, and only the positions are added up
+ * differently (in double rather than float).
+ *
+ * Headings follow the Turtle: degrees, clockwise, 0 pointing up the screen.
+ */
+class tPrefixScan {
+	// moves per block; also the size below which the scan runs on one thread
+	private static final int BLOCK_SIZE = 1 << 16;
+
+	private final byte[] ops;
+	private final float[] amounts;
+	private final int length;
+	private final int numBlocks;
+
+	// per block: displacement from the block's start, and line count
+	private final double[] blockX;
+	private final double[] blockY;
+	private final int[] blockLines;
+
+	// per block: absolute position and heading at the block's start, and first vertex
+	private final double[] startX;
+	private final double[] startY;
+	private final float[] startTheta;
+	private final int[] firstVertex;
+
+	private float[] vertices;
+
+	private tPrefixScan(TurtleProgram program) {
+		ops = program.ops;
+		amounts = program.amounts;
+		length = program.length;
+		numBlocks = Math.max(1, (length + BLOCK_SIZE - 1) / BLOCK_SIZE);
+		blockX = new double[numBlocks];
+		blockY = new double[numBlocks];
+		blockLines = new int[numBlocks];
+		startX = new double[numBlocks];
+		startY = new double[numBlocks];
+		startTheta = new float[numBlocks];
+		firstVertex = new int[numBlocks];
+	}
+
+	/**
+	 * Positions after every FORWARD and BACK move of program, for a Turtle
+	 * starting at (x, y) with the given heading, as x0, y0, x1, y1, ... with
+	 * the starting point first.
+	 */
+	static float[] vertices(TurtleProgram program, float x, float y, float heading) {
+		tPrefixScan scan = new tPrefixScan(program);
+		scan.chainHeadings(heading);
+		if (scan.numBlocks == 1) {
+			scan.reduce(0);
+			scan.chainPositions(x, y);
+			scan.replay(0);
+		} else {
+			ForkJoinPool pool = ForkJoinPool.commonPool();
+			pool.invoke(scan.new Pass(0, scan.numBlocks, false));
+			scan.chainPositions(x, y);
+			pool.invoke(scan.new Pass(0, scan.numBlocks, true));
+		}
+		return scan.vertices;
+	}
+
+	// the Turtle's heading at the start of every block, added up as the Turtle does
+	private void chainHeadings(float heading) {
+		float theta = heading;
+		for (int b = 0; b < numBlocks; b++) {
+			startTheta[b] = theta;
+			int end = Math.min(length, (b + 1) * BLOCK_SIZE);
+			for (int i = b * BLOCK_SIZE; i < end; i++) {
+				if (ops[i] == TurtleProgram.RIGHT)
+					theta = theta + amounts[i];
+				else if (ops[i] == TurtleProgram.LEFT)
+					theta = theta - amounts[i];
+			}
+		}
+	}
+
+	// displacement and line count of block b, from its absolute start heading
+	private void reduce(int b) {
+		int end = Math.min(length, (b + 1) * BLOCK_SIZE);
+		double x = 0;
+		double y = 0;
+		float theta = startTheta[b];
+		int lines = 0;
+		for (int i = b * BLOCK_SIZE; i < end; i++) {
+			switch (ops[i]) {
+				case TurtleProgram.FORWARD:
+				case TurtleProgram.BACK:
+					double d = ops[i] == TurtleProgram.FORWARD ? amounts[i] : -amounts[i];
+					x += tTrig.sin(theta) * d;
+					y -= tTrig.cos(theta) * d;
+					lines++;
+					break;
+				case TurtleProgram.LEFT:
+					theta = theta - amounts[i];
+					break;
+				case TurtleProgram.RIGHT:
+					theta = theta + amounts[i];
+					break;
+			}
+		}
+		blockX[b] = x;
+		blockY[b] = y;
+		blockLines[b] = lines;
+	}
+
+	// exclusive scan over the block displacements, and allocation of the result
+	private void chainPositions(float x, float y) {
+		double cx = x;
+		double cy = y;
+		int vertex = 1;
+		for (int b = 0; b < numBlocks; b++) {
+			startX[b] = cx;
+			startY[b] = cy;
+			firstVertex[b] = vertex;
+			cx += blockX[b];
+			cy += blockY[b];
+			vertex += blockLines[b];
+		}
+		vertices = new float[2 * vertex];
+		vertices[0] = x;
+		vertices[1] = y;
+	}
+
+	// the moves of block b again, from its absolute start, writing its vertices
+	private void replay(int b) {
+		int end = Math.min(length, (b + 1) * BLOCK_SIZE);
+		double x = startX[b];
+		double y = startY[b];
+		float theta = startTheta[b];
+		int v = 2 * firstVertex[b];
+		for (int i = b * BLOCK_SIZE; i < end; i++) {
+			switch (ops[i]) {
+				case TurtleProgram.FORWARD:
+				case TurtleProgram.BACK:
+					double d = ops[i] == TurtleProgram.FORWARD ? amounts[i] : -amounts[i];
+					x += tTrig.sin(theta) * d;
+					y -= tTrig.cos(theta) * d;
+					vertices[v++] = (float) x;
+					vertices[v++] = (float) y;
+					break;
+				case TurtleProgram.LEFT:
+					theta = theta - amounts[i];
+					break;
+				case TurtleProgram.RIGHT:
+					theta = theta + amounts[i];
+					break;
+			}
+		}
+	}
+
+	// runs reduce or replay over a range of blocks, splitting it in half until one block is left
+	private class Pass extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final boolean write;
+
+		Pass(int fromInput, int toInput, boolean writeInput) {
+			from = fromInput;
+			to = toInput;
+			write = writeInput;
+		}
+
+		protected void compute() {
+			if (to - from == 1) {
+				if (write)
+					replay(from);
+				else
+					reduce(from);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new Pass(from, mid, write), new Pass(mid, to, write));
+		}
+	}
+}
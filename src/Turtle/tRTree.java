@@ -0,0 +1,394 @@
+package Turtle;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * R-tree over history line indices, for rectangle, radius and nearest-line
+ * queries. Lines can be added one at a time, or a finished history can be
+ * packed all at once with Sort-Tile-Recursive (STR) bulk loading.
+ */
+class tRTree {
+	private static final int MAX_ENTRIES = 16;
+
+	private static class Node {
+		float minX, minY, maxX, maxY;
+		boolean leaf;
+		int count;
+		Node[] children; // inner nodes only
+		int[] lines; // leaf nodes only
+
+		Node(boolean isLeaf) {
+			leaf = isLeaf;
+			count = 0;
+			if (leaf)
+				lines = new int[MAX_ENTRIES + 1];
+			else
+				children = new Node[MAX_ENTRIES + 1];
+			minX = minY = Float.POSITIVE_INFINITY;
+			maxX = maxY = Float.NEGATIVE_INFINITY;
+		}
+
+		float centerX() {
+			return (minX + maxX) / 2;
+		}
+
+		float centerY() {
+			return (minY + maxY) / 2;
+		}
+	}
+
+	// queue entry for nearest-line search; either a node or a line
+	private static class Candidate {
+		double distanceSq;
+		Node node;
+		int line;
+
+		Candidate(double d, Node n, int l) {
+			distanceSq = d;
+			node = n;
+			line = l;
+		}
+	}
+
+	private static final Comparator<Node> BY_CENTER_X = new Comparator<Node>() {
+		public int compare(Node a, Node b) {
+			return Float.compare(a.centerX(), b.centerX());
+		}
+	};
+
+	private static final Comparator<Node> BY_CENTER_Y = new Comparator<Node>() {
+		public int compare(Node a, Node b) {
+			return Float.compare(a.centerY(), b.centerY());
+		}
+	};
+
+	private tLineBuffer history;
+	private Node root;
+	private int size;
+
+	int[] results; // line indices found by the last rectangle or radius query
+	int resultCount;
+
+	tRTree(tLineBuffer historyInput) {
+		history = historyInput;
+		root = new Node(true);
+		size = 0;
+		results = new int[64];
+		resultCount = 0;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Build a tree over the given line indices in one pass, using STR packing.
+	 */
+	static tRTree bulkLoad(tLineBuffer historyInput, int[] lineIndices, int n) {
+		tRTree tree = new tRTree(historyInput);
+		if (n == 0)
+			return tree;
+		tree.size = n;
+
+		// leaf level: sort lines into vertical slices by center x, then
+		// each slice by center y, and pack runs of MAX_ENTRIES into leaves
+		long[] keys = new long[n];
+		for (int i = 0; i < n; i++) {
+			int line = lineIndices[i];
+			keys[i] = sortKey((historyInput.x0[line] + historyInput.x1[line]) / 2, line);
+		}
+		Arrays.sort(keys);
+		int leafCount = (n + MAX_ENTRIES - 1) / MAX_ENTRIES;
+		int sliceSize = (int) Math.ceil(Math.sqrt(leafCount)) * MAX_ENTRIES;
+		Node[] level = new Node[leafCount];
+		int levelCount = 0;
+		for (int start = 0; start < n; start += sliceSize) {
+			int end = Math.min(start + sliceSize, n);
+			for (int i = start; i < end; i++) {
+				int line = (int) keys[i];
+				keys[i] = sortKey((historyInput.y0[line] + historyInput.y1[line]) / 2, line);
+			}
+			Arrays.sort(keys, start, end);
+			for (int i = start; i < end; i += MAX_ENTRIES) {
+				Node leaf = new Node(true);
+				int leafEnd = Math.min(i + MAX_ENTRIES, end);
+				for (int j = i; j < leafEnd; j++) {
+					int line = (int) keys[j];
+					leaf.lines[leaf.count++] = line;
+					tree.extend(leaf, line);
+				}
+				level[levelCount++] = leaf;
+			}
+		}
+
+		// upper levels: pack nodes the same way until one is left
+		while (levelCount > 1) {
+			int parentCount = (levelCount + MAX_ENTRIES - 1) / MAX_ENTRIES;
+			sliceSize = (int) Math.ceil(Math.sqrt(parentCount)) * MAX_ENTRIES;
+			Arrays.sort(level, 0, levelCount, BY_CENTER_X);
+			Node[] parents = new Node[parentCount];
+			int count = 0;
+			for (int start = 0; start < levelCount; start += sliceSize) {
+				int end = Math.min(start + sliceSize, levelCount);
+				Arrays.sort(level, start, end, BY_CENTER_Y);
+				for (int i = start; i < end; i += MAX_ENTRIES) {
+					Node parent = new Node(false);
+					int parentEnd = Math.min(i + MAX_ENTRIES, end);
+					for (int j = i; j < parentEnd; j++) {
+						parent.children[parent.count++] = level[j];
+						extend(parent, level[j]);
+					}
+					parents[count++] = parent;
+				}
+			}
+			level = parents;
+			levelCount = count;
+		}
+		tree.root = level[0];
+		return tree;
+	}
+
+	/**
+	 * Add a single line to the tree.
+	 */
+	void insert(int line) {
+		Node sibling = insert(root, line);
+		if (sibling != null) {
+			Node newRoot = new Node(false);
+			newRoot.children[newRoot.count++] = root;
+			newRoot.children[newRoot.count++] = sibling;
+			extend(newRoot, root);
+			extend(newRoot, sibling);
+			root = newRoot;
+		}
+		size++;
+	}
+
+	/**
+	 * Collect every line whose bounding box overlaps the rectangle into
+	 * results[0 .. resultCount).
+	 */
+	void search(float minX, float minY, float maxX, float maxY) {
+		resultCount = 0;
+		if (size > 0)
+			search(root, minX, minY, maxX, maxY);
+	}
+
+	/**
+	 * Return up to k line indices, nearest to (x, y) first.
+	 */
+	int[] nearest(float x, float y, int k) {
+		int[] found = new int[Math.max(0, Math.min(k, size))];
+		if (found.length == 0)
+			return found;
+		int count = 0;
+		PriorityQueue<Candidate> queue = new PriorityQueue<Candidate>(64, new Comparator<Candidate>() {
+			public int compare(Candidate a, Candidate b) {
+				return Double.compare(a.distanceSq, b.distanceSq);
+			}
+		});
+		queue.add(new Candidate(boxDistanceSq(root, x, y), root, -1));
+		while (!queue.isEmpty() && count < found.length) {
+			Candidate c = queue.poll();
+			if (c.node == null) {
+				found[count++] = c.line;
+			} else if (c.node.leaf) {
+				for (int i = 0; i < c.node.count; i++) {
+					int line = c.node.lines[i];
+					queue.add(new Candidate(lineDistanceSq(history, line, x, y), null, line));
+				}
+			} else {
+				for (int i = 0; i < c.node.count; i++) {
+					Node child = c.node.children[i];
+					queue.add(new Candidate(boxDistanceSq(child, x, y), child, -1));
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Squared distance from (x, y) to the closest point of a history line.
+	 */
+	static double lineDistanceSq(tLineBuffer lines, int line, float x, float y) {
+		double x0 = lines.x0[line];
+		double y0 = lines.y0[line];
+		double dx = lines.x1[line] - x0;
+		double dy = lines.y1[line] - y0;
+		double lengthSq = dx * dx + dy * dy;
+		double t = 0;
+		if (lengthSq > 0) {
+			t = ((x - x0) * dx + (y - y0) * dy) / lengthSq;
+			t = Math.max(0, Math.min(1, t));
+		}
+		double px = x0 + t * dx - x;
+		double py = y0 + t * dy - y;
+		return px * px + py * py;
+	}
+
+	/**
+	 * True if any part of a history line lies inside the rectangle.
+	 */
+	static boolean lineInRect(tLineBuffer lines, int line, float minX, float minY, float maxX, float maxY) {
+		// Liang-Barsky clipping of the line against the rectangle
+		double x0 = lines.x0[line];
+		double y0 = lines.y0[line];
+		double dx = lines.x1[line] - x0;
+		double dy = lines.y1[line] - y0;
+		double[] p = { -dx, dx, -dy, dy };
+		double[] q = { x0 - minX, maxX - x0, y0 - minY, maxY - y0 };
+		double t0 = 0;
+		double t1 = 1;
+		for (int i = 0; i < 4; i++) {
+			if (p[i] == 0) {
+				if (q[i] < 0)
+					return false;
+			} else {
+				double t = q[i] / p[i];
+				if (p[i] < 0)
+					t0 = Math.max(t0, t);
+				else
+					t1 = Math.min(t1, t);
+			}
+		}
+		return t0 <= t1;
+	}
+
+	private Node insert(Node node, int line) {
+		if (node.leaf) {
+			node.lines[node.count++] = line;
+		} else {
+			Node child = chooseChild(node, line);
+			Node sibling = insert(child, line);
+			if (sibling != null)
+				node.children[node.count++] = sibling;
+		}
+		extend(node, line);
+		if (node.count > MAX_ENTRIES)
+			return split(node);
+		return null;
+	}
+
+	// child whose box grows least to take the line; ties go to the smaller box
+	private Node chooseChild(Node node, int line) {
+		float lineMinX = Math.min(history.x0[line], history.x1[line]);
+		float lineMinY = Math.min(history.y0[line], history.y1[line]);
+		float lineMaxX = Math.max(history.x0[line], history.x1[line]);
+		float lineMaxY = Math.max(history.y0[line], history.y1[line]);
+		Node best = null;
+		double bestGrowth = Double.POSITIVE_INFINITY;
+		double bestArea = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < node.count; i++) {
+			Node child = node.children[i];
+			double area = area(child.minX, child.minY, child.maxX, child.maxY);
+			double growth = area(Math.min(child.minX, lineMinX), Math.min(child.minY, lineMinY),
+					Math.max(child.maxX, lineMaxX), Math.max(child.maxY, lineMaxY)) - area;
+			if (growth < bestGrowth || (growth == bestGrowth && area < bestArea)) {
+				best = child;
+				bestGrowth = growth;
+				bestArea = area;
+			}
+		}
+		return best;
+	}
+
+	// split an overfull node in half along the axis its entries spread most
+	// on; node keeps the lower half and the returned sibling the upper half
+	private Node split(Node node) {
+		int n = node.count;
+		Node sibling = new Node(node.leaf);
+		if (node.leaf) {
+			float spreadX = node.maxX - node.minX;
+			float spreadY = node.maxY - node.minY;
+			long[] keys = new long[n];
+			for (int i = 0; i < n; i++) {
+				int line = node.lines[i];
+				float center = spreadX >= spreadY ? (history.x0[line] + history.x1[line]) / 2
+						: (history.y0[line] + history.y1[line]) / 2;
+				keys[i] = sortKey(center, line);
+			}
+			Arrays.sort(keys);
+			resetBox(node);
+			node.count = 0;
+			for (int i = 0; i < n; i++) {
+				Node target = i < n / 2 ? node : sibling;
+				int line = (int) keys[i];
+				target.lines[target.count++] = line;
+				extend(target, line);
+			}
+		} else {
+			Node[] children = Arrays.copyOf(node.children, n);
+			Arrays.sort(children, node.maxX - node.minX >= node.maxY - node.minY ? BY_CENTER_X : BY_CENTER_Y);
+			resetBox(node);
+			Arrays.fill(node.children, null);
+			node.count = 0;
+			for (int i = 0; i < n; i++) {
+				Node target = i < n / 2 ? node : sibling;
+				target.children[target.count++] = children[i];
+				extend(target, children[i]);
+			}
+		}
+		return sibling;
+	}
+
+	private void search(Node node, float minX, float minY, float maxX, float maxY) {
+		if (node.minX > maxX || node.maxX < minX || node.minY > maxY || node.maxY < minY)
+			return;
+		if (node.leaf) {
+			for (int i = 0; i < node.count; i++) {
+				int line = node.lines[i];
+				if (Math.min(history.x0[line], history.x1[line]) > maxX
+						|| Math.max(history.x0[line], history.x1[line]) < minX
+						|| Math.min(history.y0[line], history.y1[line]) > maxY
+						|| Math.max(history.y0[line], history.y1[line]) < minY)
+					continue;
+				if (resultCount == results.length)
+					results = Arrays.copyOf(results, results.length * 2);
+				results[resultCount++] = line;
+			}
+		} else {
+			for (int i = 0; i < node.count; i++) {
+				search(node.children[i], minX, minY, maxX, maxY);
+			}
+		}
+	}
+
+	private void extend(Node node, int line) {
+		node.minX = Math.min(node.minX, Math.min(history.x0[line], history.x1[line]));
+		node.minY = Math.min(node.minY, Math.min(history.y0[line], history.y1[line]));
+		node.maxX = Math.max(node.maxX, Math.max(history.x0[line], history.x1[line]));
+		node.maxY = Math.max(node.maxY, Math.max(history.y0[line], history.y1[line]));
+	}
+
+	private static void extend(Node node, Node child) {
+		node.minX = Math.min(node.minX, child.minX);
+		node.minY = Math.min(node.minY, child.minY);
+		node.maxX = Math.max(node.maxX, child.maxX);
+		node.maxY = Math.max(node.maxY, child.maxY);
+	}
+
+	private static void resetBox(Node node) {
+		node.minX = node.minY = Float.POSITIVE_INFINITY;
+		node.maxX = node.maxY = Float.NEGATIVE_INFINITY;
+	}
+
+	private static double area(double minX, double minY, double maxX, double maxY) {
+		return (maxX - minX) * (maxY - minY);
+	}
+
+	private static double boxDistanceSq(Node node, float x, float y) {
+		double dx = Math.max(0, Math.max(node.minX - x, x - node.maxX));
+		double dy = Math.max(0, Math.max(node.minY - y, y - node.maxY));
+		return dx * dx + dy * dy;
+	}
+
+	// pack a float sort key and a line index into a long whose natural order
+	// follows the float; the line index comes back out with (int) key
+	static long sortKey(float key, int line) {
+		int bits = Float.floatToIntBits(key);
+		bits ^= (bits >> 31) & 0x7fffffff;
+		return ((long) bits << 32) | (line & 0xffffffffL);
+	}
+}
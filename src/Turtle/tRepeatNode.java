@@ -0,0 +1,55 @@
+package Turtle;
+
+/**
+ * A body of moves performed count times in a row. Nothing is copied: the
+ * moves are only expanded when the node is read, and the net transform is
+ * the body's raised to the count-th power.
+ */
+class tRepeatNode extends tMoveNode {
+	final tMoveNode body;
+	final long count;
+	private final long size;
+	private final long lines;
+	private final tTransform transform;
+
+	tRepeatNode(tMoveNode bodyInput, long countInput) {
+		this(bodyInput, countInput, bodyInput.transform().power(countInput));
+	}
+
+	// for when the net transform is already known
+	tRepeatNode(tMoveNode bodyInput, long countInput, tTransform transformInput) {
+		body = bodyInput;
+		count = countInput;
+		size = body.size() * count;
+		lines = body.lines() * count;
+		transform = transformInput;
+	}
+
+	long size() {
+		return size;
+	}
+
+	long lines() {
+		return lines;
+	}
+
+	tTransform transform() {
+		return transform;
+	}
+
+	tMoveNode slice(long from, long to) {
+		if (from == 0 && to == size)
+			return this;
+		long bodySize = body.size();
+		long first = from / bodySize;
+		long last = (to - 1) / bodySize;
+		long start = from - first * bodySize;
+		long end = to - last * bodySize;
+		if (first == last)
+			return body.slice(start, end);
+		// the end of one repetition, whole repetitions in between, the start of another
+		long middle = last - first - 1;
+		tMoveNode between = middle == 0 ? null : middle == 1 ? body : new tRepeatNode(body, middle);
+		return tConcatNode.join(tConcatNode.join(body.slice(start, bodySize), between), body.slice(0, end));
+	}
+}
@@ -0,0 +1,82 @@
+package Turtle;
+
+import java.util.ArrayList;
+
+import processing.core.PApplet;
+import processing.core.PConstants;
+import processing.core.PShape;
+
+/**
+ * Retained-mode copy of a Turtle's drawn history. Finished runs of history
+ * lines are baked into PShapes of CHUNK_SIZE lines each, so redrawing the
+ * history every frame only walks the short unfinished tail line by line.
+ */
+class tShapeCache {
+	private static final int CHUNK_SIZE = 4096;
+
+	private PApplet myParent;
+	private ArrayList<PShape> chunks; // baked shapes, in history order
+	private int cachedLength; // number of history lines already baked into chunks
+
+	tShapeCache(PApplet theParent) {
+		myParent = theParent;
+		chunks = new ArrayList<PShape>();
+		cachedLength = 0;
+	}
+
+	/**
+	 * Throw away every baked shape, e.g. after the history has been cleared.
+	 */
+	void reset() {
+		chunks.clear();
+		cachedLength = 0;
+	}
+
+	/**
+	 * Draw every PENDOWN/PENFAT line of the history, baking any newly
+	 * completed chunks first.
+	 */
+	void draw(tLineBuffer history) {
+		int numLines = history.size();
+		if (numLines < cachedLength)
+			reset();
+		while (numLines - cachedLength >= CHUNK_SIZE) {
+			PShape chunk = bake(history, cachedLength, cachedLength + CHUNK_SIZE);
+			if (chunk != null)
+				chunks.add(chunk);
+			cachedLength += CHUNK_SIZE;
+		}
+		for (PShape chunk : chunks) {
+			myParent.shape(chunk);
+		}
+		myParent.beginShape(PConstants.LINES);
+		for (int i = cachedLength; i < numLines; i++) {
+			if (history.isDrawn(i)) {
+				myParent.vertex(history.x0[i], history.y0[i]);
+				myParent.vertex(history.x1[i], history.y1[i]);
+			}
+		}
+		myParent.endShape();
+	}
+
+	// build one LINES shape from history lines [from, to); null if none are drawn
+	private PShape bake(tLineBuffer history, int from, int to) {
+		PShape chunk = null;
+		for (int i = from; i < to; i++) {
+			if (!history.isDrawn(i))
+				continue;
+			if (chunk == null) {
+				chunk = myParent.createShape();
+				chunk.beginShape(PConstants.LINES);
+			}
+			chunk.vertex(history.x0[i], history.y0[i]);
+			chunk.vertex(history.x1[i], history.y1[i]);
+		}
+		if (chunk != null) {
+			chunk.endShape();
+			// draw with the sketch's current stroke, like the unbaked tail
+			chunk.disableStyle();
+		}
+		return chunk;
+	}
+}
@@ -0,0 +1,227 @@
+package Turtle;
+
+import java.util.Arrays;
+
+/**
+ * Uniform hash grid over history line indices, used to narrow down the lines
+ * closeToPath has to test. Every line is filed under each grid cell it
+ * passes through (padded slightly for rounding), so any two lines that touch
+ * share at least one cell. Lines crossing a very large number of cells are
+ * kept in a separate list that every query returns.
+ */
+class tSpatialGrid {
+	private static final int MAX_CELLS_PER_LINE = 1024;
+	private static final int INITIAL_TABLE_SIZE = 256;
+
+	private static final int COUNT = 0;
+	private static final int INSERT = 1;
+	private static final int QUERY = 2;
+
+	private double cellSize;
+
+	// open-addressing table from packed cell coordinates to bucket number + 1
+	private long[] keys;
+	private int[] slots;
+	private int bucketCount;
+	private int[][] buckets;
+	private int[] bucketSizes;
+
+	private int[] largeLines; // lines crossing too many cells to file individually
+	private int largeCount;
+
+	private int[] stamp; // per line, the query that last returned it
+	private int currentStamp;
+
+	int[] results; // line indices found by the last query
+	int resultCount;
+
+	tSpatialGrid(float cellSizeInput) {
+		cellSize = cellSizeInput;
+		keys = new long[INITIAL_TABLE_SIZE];
+		slots = new int[INITIAL_TABLE_SIZE];
+		bucketCount = 0;
+		buckets = new int[INITIAL_TABLE_SIZE / 2][];
+		bucketSizes = new int[INITIAL_TABLE_SIZE / 2];
+		largeLines = new int[16];
+		largeCount = 0;
+		stamp = new int[64];
+		currentStamp = 0;
+		results = new int[64];
+		resultCount = 0;
+	}
+
+	float getCellSize() {
+		return (float) cellSize;
+	}
+
+	/**
+	 * File line number index under every cell the line passes through.
+	 */
+	void insert(int index, float x0, float y0, float x1, float y1) {
+		if (index >= stamp.length) {
+			int[] newStamp = new int[Math.max(stamp.length * 2, index + 1)];
+			System.arraycopy(stamp, 0, newStamp, 0, stamp.length);
+			stamp = newStamp;
+		}
+		if (traverse(x0, y0, x1, y1, COUNT, MAX_CELLS_PER_LINE) > MAX_CELLS_PER_LINE) {
+			if (largeCount == largeLines.length)
+				largeLines = grow(largeLines, largeCount + 1);
+			largeLines[largeCount++] = index;
+		} else {
+			traverse(x0, y0, x1, y1, INSERT, index);
+		}
+	}
+
+	/**
+	 * Collect, without duplicates, every filed line that shares a cell with
+	 * the segment (x0, y0)-(x1, y1). The line indices are left in results[0
+	 * .. resultCount). Returns false instead if the segment crosses so many
+	 * cells that a plain scan of the history would be cheaper.
+	 */
+	boolean query(float x0, float y0, float x1, float y1, int numLines) {
+		resultCount = 0;
+		if (traverse(x0, y0, x1, y1, COUNT, numLines) > numLines)
+			return false;
+		currentStamp++;
+		if (currentStamp == 0) {
+			// stamp counter wrapped around; start over so old stamps can't match
+			Arrays.fill(stamp, 0);
+			currentStamp = 1;
+		}
+		for (int i = 0; i < largeCount; i++) {
+			addResult(largeLines[i]);
+		}
+		traverse(x0, y0, x1, y1, QUERY, 0);
+		return true;
+	}
+
+	// walk the cells the segment passes through, one column of cells at a
+	// time, and count / file / gather them depending on op. When counting,
+	// index is a limit past which counting stops early.
+	private long traverse(float x0, float y0, float x1, float y1, int op, int index) {
+		double minX = Math.min(x0, x1);
+		double maxX = Math.max(x0, x1);
+		double minY = Math.min(y0, y1);
+		double maxY = Math.max(y0, y1);
+		double dx = (double) x1 - x0;
+		double dy = (double) y1 - y0;
+		double pad = cellSize * 1e-3 + Math.abs(dy) * 1e-4;
+		long firstColumn = cell(minX);
+		long lastColumn = cell(maxX);
+		long cells = 0;
+		for (long cx = firstColumn; cx <= lastColumn; cx++) {
+			double low = minY;
+			double high = maxY;
+			if (firstColumn != lastColumn) {
+				// y range of the segment inside this column
+				double xa = Math.max(minX, cx * cellSize);
+				double xb = Math.min(maxX, (cx + 1) * cellSize);
+				double ya = y0 + (xa - x0) * dy / dx;
+				double yb = y0 + (xb - x0) * dy / dx;
+				low = Math.max(minY, Math.min(ya, yb));
+				high = Math.min(maxY, Math.max(ya, yb));
+			}
+			long firstRow = cell(low - pad);
+			long lastRow = cell(high + pad);
+			if (op == COUNT) {
+				cells += lastRow - firstRow + 1;
+				if (cells > index)
+					return cells;
+				continue;
+			}
+			for (long cy = firstRow; cy <= lastRow; cy++) {
+				if (op == INSERT) {
+					addToBucket(bucket((int) cx, (int) cy, true), index);
+				} else {
+					int b = bucket((int) cx, (int) cy, false);
+					if (b >= 0) {
+						int[] lines = buckets[b];
+						int n = bucketSizes[b];
+						for (int i = 0; i < n; i++) {
+							addResult(lines[i]);
+						}
+					}
+				}
+				cells++;
+			}
+		}
+		return cells;
+	}
+
+	private int cell(double coordinate) {
+		return (int) Math.floor(coordinate / cellSize);
+	}
+
+	private void addResult(int line) {
+		if (stamp[line] == currentStamp)
+			return;
+		stamp[line] = currentStamp;
+		if (resultCount == results.length)
+			results = grow(results, resultCount + 1);
+		results[resultCount++] = line;
+	}
+
+	private void addToBucket(int b, int line) {
+		int n = bucketSizes[b];
+		if (n == buckets[b].length)
+			buckets[b] = grow(buckets[b], n + 1);
+		buckets[b][n] = line;
+		bucketSizes[b] = n + 1;
+	}
+
+	// bucket number for a cell, or -1 if the cell is empty and create is false
+	private int bucket(int cx, int cy, boolean create) {
+		long key = ((long) cx << 32) | (cy & 0xffffffffL);
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (slots[slot] != 0) {
+			if (keys[slot] == key)
+				return slots[slot] - 1;
+			slot = (slot + 1) & mask;
+		}
+		if (!create)
+			return -1;
+		if (bucketCount == buckets.length) {
+			int[][] newBuckets = new int[buckets.length * 2][];
+			System.arraycopy(buckets, 0, newBuckets, 0, bucketCount);
+			buckets = newBuckets;
+			bucketSizes = grow(bucketSizes, bucketCount + 1);
+		}
+		buckets[bucketCount] = new int[4];
+		bucketSizes[bucketCount] = 0;
+		keys[slot] = key;
+		slots[slot] = ++bucketCount;
+		if (bucketCount * 2 > keys.length)
+			rehash();
+		return bucketCount - 1;
+	}
+
+	private void rehash() {
+		long[] oldKeys = keys;
+		int[] oldSlots = slots;
+		keys = new long[oldKeys.length * 2];
+		slots = new int[oldSlots.length * 2];
+		int mask = keys.length - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldSlots[i] == 0)
+				continue;
+			int slot = hash(oldKeys[i]) & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			keys[slot] = oldKeys[i];
+			slots[slot] = oldSlots[i];
+		}
+	}
+
+	private static int hash(long key) {
+		key *= 0x9E3779B97F4A7C15L;
+		return (int) (key ^ (key >>> 32));
+	}
+
+	private static int[] grow(int[] array, int minCapacity) {
+		int[] finalArray = new int[Math.max(array.length * 2, minCapacity)];
+		System.arraycopy(array, 0, finalArray, 0, array.length);
+		return finalArray;
+	}
+}
@@ -0,0 +1,92 @@
+package Turtle;
+
+/**
+ * Stack of saved Turtle states used by push() and pop(). Position, heading and
+ * pen state are kept in parallel primitive arrays that double in size when
+ * full, so pushing allocates nothing in the common case.
+ */
+class tStateStack {
+	private static final int INITIAL_CAPACITY = 8;
+
+	private float[] x;
+	private float[] y;
+	private float[] theta;
+	private int[] penState;
+	private int size;
+
+	tStateStack() {
+		x = new float[INITIAL_CAPACITY];
+		y = new float[INITIAL_CAPACITY];
+		theta = new float[INITIAL_CAPACITY];
+		penState = new int[INITIAL_CAPACITY];
+		size = 0;
+	}
+
+	/**
+	 * Copy constructor, creates an independent copy of the input stack.
+	 */
+	tStateStack(tStateStack S) {
+		x = S.x.clone();
+		y = S.y.clone();
+		theta = S.theta.clone();
+		penState = S.penState.clone();
+		size = S.size;
+	}
+
+	void push(float xInput, float yInput, float thetaInput, int stateInput) {
+		if (size == penState.length)
+			grow();
+		x[size] = xInput;
+		y[size] = yInput;
+		theta[size] = thetaInput;
+		penState[size] = stateInput;
+		size++;
+	}
+
+	/**
+	 * Remove the top state. Read it first with the top*() accessors.
+	 */
+	void pop() {
+		size--;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	int size() {
+		return size;
+	}
+
+	float topX() {
+		return x[size - 1];
+	}
+
+	float topY() {
+		return y[size - 1];
+	}
+
+	float topTheta() {
+		return theta[size - 1];
+	}
+
+	int topPenState() {
+		return penState[size - 1];
+	}
+
+	private void grow() {
+		int capacity = penState.length * 2;
+		float[] newX = new float[capacity];
+		float[] newY = new float[capacity];
+		float[] newTheta = new float[capacity];
+		int[] newPenState = new int[capacity];
+		System.arraycopy(x, 0, newX, 0, size);
+		System.arraycopy(y, 0, newY, 0, size);
+		System.arraycopy(theta, 0, newTheta, 0, size);
+		System.arraycopy(penState, 0, newPenState, 0, size);
+		x = newX;
+		y = newY;
+		theta = newTheta;
+		penState = newPenState;
+	}
+}
@@ -0,0 +1,555 @@
+package Turtle;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Batch self-intersection report for a finished history: a Bentley-Ottmann
+ * sweep of a vertical line across it from left to right, handling shared
+ * endpoints, vertical and collinear lines as in de Berg et al.,
+ * Computational Geometry, chapter 2. The lines the sweep line currently
+ * crosses are kept in a treap ordered by where they cross it, bottom to top,
+ * and the sweep stops at every endpoint and at every point where two lines
+ * cross. Only lines that are next to each other in that order are tested
+ * for crossing further on, so n lines with k crossings take
+ * O((n + k) log n) time.
+ *
+ * Every comparison is exact: crossing points are compared in double
+ * arithmetic with an error bound, and in BigDecimal when that bound is too
+ * wide to tell, and lines are compared with the tGeometry predicates. Each
+ * pair found is checked with tLine.intersects before it is reported. Lines
+ * with infinite or NaN coordinates have no place in the order; they are
+ * tested against every other line instead.
+ * test/Turtle/SweepLineCheck compares the result with a brute-force check
+ * of every pair.
+ */
+class tSweepLine {
+	private static final double EPSILON = Math.ulp(1.0) / 2;
+
+	private tLineBuffer history;
+	private int[] lines; // history index of each line in the sweep
+	// each line from its first endpoint in sweep order (least x, then least y) to its last
+	private float[] x0;
+	private float[] y0;
+	private float[] x1;
+	private float[] y1;
+	private int[] begins; // number of the event at which the line starts
+	private int[] ends; // number of the event at which the line ends
+
+	// treap over the lines the sweep line crosses, bottom to top
+	private int[] left;
+	private int[] right;
+	private int[] priority;
+	private int root = -1;
+	private int splitLow; // results of split
+	private int splitHigh;
+
+	private PriorityQueue<Event> crossingEvents;
+	private ArrayList<tCrossing> crossings = new ArrayList<tCrossing>();
+	private TurtleCanvas canvas;
+
+	private tSweepLine(tLineBuffer historyInput, TurtleCanvas canvasInput) {
+		history = historyInput;
+		canvas = canvasInput;
+	}
+
+	/**
+	 * Report every pair of non-PENUP history lines that tLine.intersects
+	 * considers intersecting, with the point where they meet.
+	 */
+	static tCrossing[] report(tLineBuffer history, TurtleCanvas canvas) {
+		return new tSweepLine(history, canvas).run();
+	}
+
+	private tCrossing[] run() {
+		int numLines = history.size();
+		lines = new int[numLines];
+		int[] unordered = new int[numLines];
+		int n = 0;
+		int numUnordered = 0;
+		for (int i = 0; i < numLines; i++) {
+			if (history.state[i] == penStates.PENUP)
+				continue;
+			if (Float.isFinite(history.x0[i]) && Float.isFinite(history.y0[i]) && Float.isFinite(history.x1[i])
+					&& Float.isFinite(history.y1[i]))
+				lines[n++] = i;
+			else
+				unordered[numUnordered++] = i;
+		}
+
+		x0 = new float[n];
+		y0 = new float[n];
+		x1 = new float[n];
+		y1 = new float[n];
+		begins = new int[n];
+		ends = new int[n];
+		left = new int[n];
+		right = new int[n];
+		priority = new int[n];
+		int seed = 0x2545F491;
+		for (int k = 0; k < n; k++) {
+			int i = lines[k];
+			// adding 0 turns -0 into 0, so that equal points sort together
+			float ax = history.x0[i] + 0f;
+			float ay = history.y0[i] + 0f;
+			float bx = history.x1[i] + 0f;
+			float by = history.y1[i] + 0f;
+			boolean forward = ax < bx || (ax == bx && ay <= by);
+			x0[k] = forward ? ax : bx;
+			y0[k] = forward ? ay : by;
+			x1[k] = forward ? bx : ax;
+			y1[k] = forward ? by : ay;
+			seed ^= seed << 13;
+			seed ^= seed >>> 17;
+			seed ^= seed << 5;
+			priority[k] = seed;
+		}
+
+		// endpoint events: 2k for where line k starts, 2k + 1 for where it ends
+		Integer[] endpoints = new Integer[2 * n];
+		for (int e = 0; e < endpoints.length; e++)
+			endpoints[e] = e;
+		Arrays.sort(endpoints, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				int c = Float.compare(endpointX(a), endpointX(b));
+				return c != 0 ? c : Float.compare(endpointY(a), endpointY(b));
+			}
+		});
+
+		crossingEvents = new PriorityQueue<Event>(16, new Comparator<Event>() {
+			public int compare(Event a, Event b) {
+				return Event.compare(a, b);
+			}
+		});
+		int[] starts = new int[n];
+		int next = 0;
+		int eventNumber = 0;
+		while (next < endpoints.length || !crossingEvents.isEmpty()) {
+			Event p = null;
+			if (next < endpoints.length)
+				p = new Event(endpointX(endpoints[next]), endpointY(endpoints[next]));
+			if (p == null || (!crossingEvents.isEmpty() && Event.compare(crossingEvents.peek(), p) < 0))
+				p = crossingEvents.peek();
+			while (!crossingEvents.isEmpty() && Event.compare(crossingEvents.peek(), p) == 0)
+				crossingEvents.poll();
+			eventNumber++;
+			int numStarts = 0;
+			while (next < endpoints.length && !p.crossing && endpointX(endpoints[next]) == p.x
+					&& endpointY(endpoints[next]) == p.y) {
+				int e = endpoints[next++];
+				if ((e & 1) == 0) {
+					starts[numStarts++] = e >> 1;
+					begins[e >> 1] = eventNumber;
+				} else
+					ends[e >> 1] = eventNumber;
+			}
+			handle(p, eventNumber, starts, numStarts);
+		}
+
+		// lines that can't be placed in the sweep are tested against every line
+		for (int a = 0; a < numUnordered; a++) {
+			for (int k = 0; k < n; k++)
+				check(unordered[a], lines[k]);
+			for (int b = a + 1; b < numUnordered; b++)
+				check(unordered[a], unordered[b]);
+		}
+		return crossings.toArray(new tCrossing[crossings.size()]);
+	}
+
+	private float endpointX(int e) {
+		return (e & 1) == 0 ? x0[e >> 1] : x1[e >> 1];
+	}
+
+	private float endpointY(int e) {
+		return (e & 1) == 0 ? y0[e >> 1] : y1[e >> 1];
+	}
+
+	// process the event at p: report the pairs that meet there and reorder
+	// the lines through p as they are just after it
+	private void handle(Event p, int eventNumber, int[] starts, int numStarts) {
+		split(root, p, 1);
+		int below = splitLow;
+		split(splitHigh, p, 0);
+		int through = splitLow;
+		int above = splitHigh;
+
+		// the lines through p, bottom to top as they were just before it
+		int[] block = new int[count(through)];
+		collect(through, block, 0);
+		reportAt(eventNumber, block, starts, numStarts);
+
+		// the lines that go on past p, bottom to top just after it; lines
+		// that start and end at p are only a point and don't go in the order
+		ArrayList<Integer> after = new ArrayList<Integer>();
+		for (int i = 0; i < numStarts; i++) {
+			if (x0[starts[i]] != x1[starts[i]] || y0[starts[i]] != y1[starts[i]])
+				after.add(starts[i]);
+		}
+		for (int s : block) {
+			if (ends[s] != eventNumber)
+				after.add(s);
+		}
+		Integer[] sorted = after.toArray(new Integer[after.size()]);
+		Arrays.sort(sorted, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return compareAfter(a, b);
+			}
+		});
+		reportStartingTogether(sorted, eventNumber);
+
+		int middle = -1;
+		for (int s : sorted) {
+			left[s] = -1;
+			right[s] = -1;
+			middle = merge(middle, s);
+		}
+		int lower = last(below);
+		int upper = first(above);
+		if (sorted.length == 0) {
+			checkCrossing(lower, upper, p);
+		} else {
+			checkCrossing(lower, sorted[0], p);
+			checkCrossing(sorted[sorted.length - 1], upper, p);
+		}
+		root = merge(merge(below, middle), above);
+	}
+
+	// report the pairs meeting at p that involve a line going through it
+	// rather than starting or ending there; lines starting together are
+	// left to reportStartingTogether
+	private void reportAt(int eventNumber, int[] block, int[] starts, int numStarts) {
+		// lines through p that are collinear are next to each other; any two
+		// of them that overlap were reported where the later one started
+		int[] runStart = new int[block.length];
+		int[] runEnd = new int[block.length];
+		for (int i = 0; i < block.length; i++)
+			runStart[i] = i > 0 && parallel(block[i - 1], block[i]) ? runStart[i - 1] : i;
+		for (int i = block.length - 1; i >= 0; i--)
+			runEnd[i] = i < block.length - 1 && parallel(block[i], block[i + 1]) ? runEnd[i + 1] : i + 1;
+		for (int i = 0; i < block.length; i++) {
+			if (ends[block[i]] == eventNumber)
+				continue;
+			// block[i] goes on past p, so it meets every line through p at
+			// another angle (taking pairs of such lines once, from the lower
+			// one) and every line that starts at p
+			for (int j = 0; j < runStart[i]; j++) {
+				if (ends[block[j]] == eventNumber)
+					check(lines[block[i]], lines[block[j]]);
+			}
+			for (int j = runEnd[i]; j < block.length; j++)
+				check(lines[block[i]], lines[block[j]]);
+			for (int j = 0; j < numStarts; j++)
+				check(lines[block[i]], lines[starts[j]]);
+		}
+	}
+
+	// report the pairs of lines that start at the same point in the same
+	// direction, which overlap unless they end at the same point too
+	private void reportStartingTogether(Integer[] sorted, int eventNumber) {
+		int i = 0;
+		while (i < sorted.length) {
+			int j = i + 1;
+			while (j < sorted.length && parallel(sorted[j - 1], sorted[j]))
+				j++;
+			ArrayList<Integer> run = new ArrayList<Integer>();
+			for (int k = i; k < j; k++) {
+				if (begins[sorted[k]] == eventNumber)
+					run.add(sorted[k]);
+			}
+			if (run.size() > 1) {
+				Integer[] byEnd = run.toArray(new Integer[run.size()]);
+				Arrays.sort(byEnd, new Comparator<Integer>() {
+					public int compare(Integer a, Integer b) {
+						int c = Float.compare(x1[a], x1[b]);
+						return c != 0 ? c : Float.compare(y1[a], y1[b]);
+					}
+				});
+				int group = 0;
+				for (int k = 1; k < byEnd.length; k++) {
+					if (x1[byEnd[k]] != x1[byEnd[k - 1]] || y1[byEnd[k]] != y1[byEnd[k - 1]])
+						group = k;
+					for (int m = 0; m < group; m++)
+						check(lines[byEnd[k]], lines[byEnd[m]]);
+				}
+			}
+			i = j;
+		}
+	}
+
+	// report lines a and b (history indices) if they intersect
+	private void check(int a, int b) {
+		int first = Math.min(a, b);
+		int second = Math.max(a, b);
+		if (tLine.intersects(history.x0[first], history.y0[first], history.x1[first], history.y1[first],
+				history.state[first], history.x0[second], history.y0[second], history.x1[second],
+				history.y1[second], history.state[second])) {
+			tLine line0 = history.get(first, canvas);
+			tLine line1 = history.get(second, canvas);
+			crossings.add(new tCrossing(line0, line1, meetingPoint(line0, line1)));
+		}
+	}
+
+	// queue the point where lines a and b cross, if they are both there and cross beyond p
+	private void checkCrossing(int a, int b, Event p) {
+		if (a < 0 || b < 0)
+			return;
+		if (!tLine.intersectsProper(x0[a], y0[a], x1[a], y1[a], penStates.PENDOWN, x0[b], y0[b], x1[b], y1[b],
+				penStates.PENDOWN))
+			return;
+		Event q = new Event(this, Math.min(a, b), Math.max(a, b));
+		if (Event.compare(q, p) > 0)
+			crossingEvents.add(q);
+	}
+
+	// which side of line s p is on: 1 above, -1 below, 0 on it
+	private int side(int s, Event p) {
+		if (!p.crossing)
+			return tGeometry.orientation(x0[s], y0[s], x1[s], y1[s], (float) p.x, (float) p.y);
+		if (s == p.a || s == p.b)
+			return 0;
+		double dx = (double) x1[s] - x0[s];
+		double dy = (double) y1[s] - y0[s];
+		double ux = p.x - x0[s];
+		double uy = p.y - y0[s];
+		double errorUx = p.errorX + EPSILON * Math.abs(ux);
+		double errorUy = p.errorY + EPSILON * Math.abs(uy);
+		double t1 = dx * uy;
+		double t2 = dy * ux;
+		double value = t1 - t2;
+		double error = productError(dx, EPSILON * Math.abs(dx), uy, errorUy, t1)
+				+ productError(dy, EPSILON * Math.abs(dy), ux, errorUx, t2) + EPSILON * Math.abs(value);
+		if (value > 2 * error)
+			return 1;
+		if (-value > 2 * error)
+			return -1;
+		// exactly, p = (numeratorX / denominator, numeratorY / denominator)
+		p.exact();
+		BigDecimal sx = new BigDecimal(x0[s]);
+		BigDecimal sy = new BigDecimal(y0[s]);
+		BigDecimal relativeX = p.numeratorX.subtract(sx.multiply(p.denominator));
+		BigDecimal relativeY = p.numeratorY.subtract(sy.multiply(p.denominator));
+		BigDecimal det = new BigDecimal(x1[s]).subtract(sx).multiply(relativeY)
+				.subtract(new BigDecimal(y1[s]).subtract(sy).multiply(relativeX));
+		return det.signum() * p.denominator.signum();
+	}
+
+	// order of two lines through the current event just after it: by slope,
+	// then by number, so collinear lines keep their order
+	private int compareAfter(int a, int b) {
+		int c = -tGeometry.cross(x0[a], y0[a], x1[a], y1[a], x0[b], y0[b], x1[b], y1[b]);
+		return c != 0 ? c : Integer.compare(a, b);
+	}
+
+	private boolean parallel(int a, int b) {
+		return tGeometry.cross(x0[a], y0[a], x1[a], y1[a], x0[b], y0[b], x1[b], y1[b]) == 0;
+	}
+
+	// splits the treap under node into the lines s with side(s, p) >= minSide,
+	// which come first, in splitLow, and the rest, in splitHigh
+	private void split(int node, Event p, int minSide) {
+		if (node < 0) {
+			splitLow = -1;
+			splitHigh = -1;
+		} else if (side(node, p) >= minSide) {
+			split(right[node], p, minSide);
+			right[node] = splitLow;
+			splitLow = node;
+		} else {
+			split(left[node], p, minSide);
+			left[node] = splitHigh;
+			splitHigh = node;
+		}
+	}
+
+	// the treap with the lines of a followed by those of b
+	private int merge(int a, int b) {
+		if (a < 0)
+			return b;
+		if (b < 0)
+			return a;
+		if (priority[a] > priority[b]) {
+			right[a] = merge(right[a], b);
+			return a;
+		}
+		left[b] = merge(a, left[b]);
+		return b;
+	}
+
+	private int count(int node) {
+		return node < 0 ? 0 : count(left[node]) + 1 + count(right[node]);
+	}
+
+	private int collect(int node, int[] into, int at) {
+		if (node < 0)
+			return at;
+		at = collect(left[node], into, at);
+		into[at++] = node;
+		return collect(right[node], into, at);
+	}
+
+	private int first(int node) {
+		if (node < 0)
+			return -1;
+		while (left[node] >= 0)
+			node = left[node];
+		return node;
+	}
+
+	private int last(int node) {
+		if (node < 0)
+			return -1;
+		while (right[node] >= 0)
+			node = right[node];
+		return node;
+	}
+
+	// bound on the error of a * b computed in double, given bounds on the errors of a and b
+	private static double productError(double a, double errorA, double b, double errorB, double product) {
+		return Math.abs(a) * errorB + Math.abs(b) * errorA + errorA * errorB + EPSILON * Math.abs(product);
+	}
+
+	// the crossing point of a proper intersection, otherwise the endpoint of
+	// one line that lies on the other
+	private static tPoint meetingPoint(tLine a, tLine b) {
+		if (a.intersectsProper(b)) {
+			double ax = a.p1.x - a.p0.x;
+			double ay = a.p1.y - a.p0.y;
+			double bx = b.p1.x - b.p0.x;
+			double by = b.p1.y - b.p0.y;
+			double d = ax * by - ay * bx;
+			if (d != 0) {
+				double t = ((b.p0.x - a.p0.x) * by - (b.p0.y - a.p0.y) * bx) / d;
+				return new tPoint(a.p0.x + t * ax, a.p0.y + t * ay);
+			}
+		}
+		if (a.between(b.p0))
+			return new tPoint(b.p0.x, b.p0.y);
+		if (a.between(b.p1))
+			return new tPoint(b.p1.x, b.p1.y);
+		if (b.between(a.p0))
+			return new tPoint(a.p0.x, a.p0.y);
+		return new tPoint(a.p1.x, a.p1.y);
+	}
+
+	/**
+	 * A point where the sweep stops: an endpoint, whose coordinates are
+	 * exact, or the crossing of two lines, whose coordinates are kept
+	 * approximately with a bound on their error, and exactly, as fractions
+	 * of BigDecimals, once a comparison needs them.
+	 */
+	private static final class Event {
+		final boolean crossing;
+		final double x;
+		final double y;
+		final double errorX;
+		final double errorY;
+		// crossings only: the two lines, in the sweep, and their endpoints
+		final int a;
+		final int b;
+		private final float[] coordinates;
+		BigDecimal numeratorX;
+		BigDecimal numeratorY;
+		BigDecimal denominator;
+
+		Event(float xInput, float yInput) {
+			crossing = false;
+			x = xInput;
+			y = yInput;
+			errorX = 0;
+			errorY = 0;
+			a = -1;
+			b = -1;
+			coordinates = null;
+		}
+
+		Event(tSweepLine sweep, int aInput, int bInput) {
+			crossing = true;
+			a = aInput;
+			b = bInput;
+			coordinates = new float[] { sweep.x0[a], sweep.y0[a], sweep.x1[a], sweep.y1[a], sweep.x0[b], sweep.y0[b],
+					sweep.x1[b], sweep.y1[b] };
+			// a0 + t * (a1 - a0) with t = n / d, tracking a bound on the error of each step
+			double dax = (double) coordinates[2] - coordinates[0];
+			double day = (double) coordinates[3] - coordinates[1];
+			double dbx = (double) coordinates[6] - coordinates[4];
+			double dby = (double) coordinates[7] - coordinates[5];
+			double dx = (double) coordinates[4] - coordinates[0];
+			double dy = (double) coordinates[5] - coordinates[1];
+			double p1 = dax * dby;
+			double p2 = day * dbx;
+			double d = p1 - p2;
+			double errorD = productError(dax, EPSILON * Math.abs(dax), dby, EPSILON * Math.abs(dby), p1)
+					+ productError(day, EPSILON * Math.abs(day), dbx, EPSILON * Math.abs(dbx), p2)
+					+ EPSILON * Math.abs(d);
+			double q1 = dx * dby;
+			double q2 = dy * dbx;
+			double n = q1 - q2;
+			double errorN = productError(dx, EPSILON * Math.abs(dx), dby, EPSILON * Math.abs(dby), q1)
+					+ productError(dy, EPSILON * Math.abs(dy), dbx, EPSILON * Math.abs(dbx), q2)
+					+ EPSILON * Math.abs(n);
+			double t = n / d;
+			double errorT = (errorN + Math.abs(t) * errorD) / (Math.abs(d) - errorD) + EPSILON * Math.abs(t);
+			double tx = t * dax;
+			double ty = t * day;
+			x = coordinates[0] + tx;
+			y = coordinates[1] + ty;
+			double boundX = 2 * (productError(t, errorT, dax, EPSILON * Math.abs(dax), tx) + EPSILON * Math.abs(x));
+			double boundY = 2 * (productError(t, errorT, day, EPSILON * Math.abs(day), ty) + EPSILON * Math.abs(y));
+			// when d is too close to 0 to be sure of its size, there is no useful bound
+			boolean bounded = Math.abs(d) > 2 * errorD && Double.isFinite(boundX) && Double.isFinite(boundY);
+			errorX = bounded ? boundX : Double.POSITIVE_INFINITY;
+			errorY = bounded ? boundY : Double.POSITIVE_INFINITY;
+		}
+
+		// compute the exact coordinates, if not done yet
+		void exact() {
+			if (denominator != null)
+				return;
+			if (!crossing) {
+				numeratorX = new BigDecimal(x);
+				numeratorY = new BigDecimal(y);
+				denominator = BigDecimal.ONE;
+				return;
+			}
+			BigDecimal ax = new BigDecimal(coordinates[0]);
+			BigDecimal ay = new BigDecimal(coordinates[1]);
+			BigDecimal dax = new BigDecimal(coordinates[2]).subtract(ax);
+			BigDecimal day = new BigDecimal(coordinates[3]).subtract(ay);
+			BigDecimal dbx = new BigDecimal(coordinates[6]).subtract(new BigDecimal(coordinates[4]));
+			BigDecimal dby = new BigDecimal(coordinates[7]).subtract(new BigDecimal(coordinates[5]));
+			BigDecimal dx = new BigDecimal(coordinates[4]).subtract(ax);
+			BigDecimal dy = new BigDecimal(coordinates[5]).subtract(ay);
+			BigDecimal d = dax.multiply(dby).subtract(day.multiply(dbx));
+			BigDecimal n = dx.multiply(dby).subtract(dy.multiply(dbx));
+			numeratorX = ax.multiply(d).add(n.multiply(dax));
+			numeratorY = ay.multiply(d).add(n.multiply(day));
+			denominator = d;
+		}
+
+		// order of events in the sweep: by x, then by y
+		static int compare(Event p, Event q) {
+			if (p.crossing && q.crossing && p.a == q.a && p.b == q.b)
+				return 0;
+			int c = compare(p, q, p.x, p.errorX, q.x, q.errorX, true);
+			return c != 0 ? c : compare(p, q, p.y, p.errorY, q.y, q.errorY, false);
+		}
+
+		private static int compare(Event p, Event q, double u, double errorU, double v, double errorV,
+				boolean useX) {
+			if (u - v > errorU + errorV)
+				return 1;
+			if (v - u > errorU + errorV)
+				return -1;
+			if (errorU == 0 && errorV == 0)
+				return 0;
+			p.exact();
+			q.exact();
+			BigDecimal left = (useX ? p.numeratorX : p.numeratorY).multiply(q.denominator);
+			BigDecimal right = (useX ? q.numeratorX : q.numeratorY).multiply(p.denominator);
+			return left.compareTo(right) * p.denominator.signum() * q.denominator.signum();
+		}
+	}
+}
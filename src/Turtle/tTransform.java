@@ -0,0 +1,87 @@
+package Turtle;
+
+/**
+ * Rigid motion of the plane (rotation plus translation) describing the net
+ * effect of a sequence of Turtle moves on a Turtle that starts at the origin
+ * heading along the positive x axis. Headings are in degrees, counterclockwise
+ * positive, as in TurtleInstructions. Immutable.
+ */
+class tTransform {
+	static final tTransform IDENTITY = new tTransform(0, 0, 0);
+
+	final double x;
+	final double y;
+	final double theta;
+
+	tTransform(double xInput, double yInput, double thetaInput) {
+		x = xInput;
+		y = yInput;
+		theta = thetaInput % 360;
+	}
+
+	/**
+	 * The transform of the single move op with magnitude amount.
+	 */
+	static tTransform of(byte op, float amount) {
+		switch (op) {
+			case TurtleProgram.FORWARD:
+				return new tTransform(amount, 0, 0);
+			case TurtleProgram.BACK:
+				return new tTransform(-amount, 0, 0);
+			case TurtleProgram.LEFT:
+				return new tTransform(0, 0, amount);
+			default:
+				return new tTransform(0, 0, -amount);
+		}
+	}
+
+	/**
+	 * The transform of doing this and then t.
+	 */
+	tTransform then(tTransform t) {
+		double c = Math.cos(Math.toRadians(theta));
+		double s = Math.sin(Math.toRadians(theta));
+		return new tTransform(x + c * t.x - s * t.y, y + s * t.x + c * t.y, theta + t.theta);
+	}
+
+	/**
+	 * The transform that undoes this one. Since reversing a move (FORWARD for
+	 * BACK, LEFT for RIGHT) inverts it, this is also the transform of the
+	 * reversed sequence of moves.
+	 */
+	tTransform inverse() {
+		double c = Math.cos(Math.toRadians(theta));
+		double s = Math.sin(Math.toRadians(theta));
+		return new tTransform(-c * x - s * y, s * x - c * y, -theta);
+	}
+
+	/**
+	 * The transform of the same moves with every length multiplied by factor.
+	 */
+	tTransform dilated(double factor) {
+		return new tTransform(x * factor, y * factor, theta);
+	}
+
+	/**
+	 * Length of the net displacement.
+	 */
+	double length() {
+		return Math.sqrt(x * x + y * y);
+	}
+
+	/**
+	 * The transform of doing this n times in a row, by repeated squaring.
+	 */
+	tTransform power(long n) {
+		tTransform result = IDENTITY;
+		tTransform square = this;
+		while (n > 0) {
+			if ((n & 1) != 0)
+				result = result.then(square);
+			n >>= 1;
+			if (n > 0)
+				square = square.then(square);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,43 @@
+package Turtle;
+
+/**
+ * Degree-based sine and cosine for the Turtle. Whole-degree angles come from
+ * a precomputed table (with exact values at multiples of 90 degrees); any
+ * other angle falls back to Math.sin/Math.cos.
+ */
+final class tTrig {
+	private static final double[] SIN_TABLE = new double[360];
+
+	static {
+		for (int i = 0; i < 360; i++) {
+			SIN_TABLE[i] = Math.sin(Math.toRadians(i));
+		}
+		SIN_TABLE[0] = 0;
+		SIN_TABLE[90] = 1;
+		SIN_TABLE[180] = 0;
+		SIN_TABLE[270] = -1;
+	}
+
+	private tTrig() {
+	}
+
+	static double sin(float degrees) {
+		int whole = (int) degrees;
+		if (whole == degrees)
+			return SIN_TABLE[wrap(whole)];
+		return Math.sin(Math.toRadians(degrees));
+	}
+
+	static double cos(float degrees) {
+		int whole = (int) degrees;
+		if (whole == degrees)
+			return SIN_TABLE[wrap(whole + 90)];
+		return Math.cos(Math.toRadians(degrees));
+	}
+
+	// map any whole number of degrees into [0, 360)
+	private static int wrap(int degrees) {
+		int d = degrees % 360;
+		return d < 0 ? d + 360 : d;
+	}
+}
@@ -0,0 +1,73 @@
+package Turtle;
+
+/**
+ * Another node read backwards (each move reversed, in the opposite order)
+ * and/or with every length multiplied by a scale factor. Creating one takes
+ * constant time however many moves the source holds; the flags are applied
+ * as the moves are read. A view of a view is folded into a single view.
+ */
+class tViewNode extends tMoveNode {
+	final tMoveNode source;
+	final boolean reversed;
+	final float scale;
+	private tTransform transform; // computed on first use
+
+	private tViewNode(tMoveNode sourceInput, boolean reversedInput, float scaleInput) {
+		source = sourceInput;
+		reversed = reversedInput;
+		scale = scaleInput;
+	}
+
+	/**
+	 * node scaled by scale and then, if reversed is true, reversed.
+	 */
+	static tMoveNode of(tMoveNode node, boolean reversed, float scale) {
+		if (node instanceof tViewNode) {
+			tViewNode view = (tViewNode) node;
+			reversed ^= view.reversed;
+			scale *= view.scale;
+			node = view.source;
+		}
+		if (!reversed && scale == 1)
+			return node;
+		return new tViewNode(node, reversed, scale);
+	}
+
+	long size() {
+		return source.size();
+	}
+
+	long lines() {
+		return source.lines();
+	}
+
+	tTransform transform() {
+		if (transform == null) {
+			tTransform t = source.transform().dilated(scale);
+			transform = reversed ? t.inverse() : t;
+		}
+		return transform;
+	}
+
+	tMoveNode slice(long from, long to) {
+		long size = source.size();
+		if (from == 0 && to == size)
+			return this;
+		if (reversed)
+			return of(source.slice(size - to, size - from), reversed, scale);
+		return of(source.slice(from, to), reversed, scale);
+	}
+
+	/**
+	 * For a view of a concat node, the same moves as a concat node of two
+	 * views, so that joins can rebalance through it.
+	 */
+	tConcatNode expose() {
+		tConcatNode concat = (tConcatNode) source;
+		tMoveNode left = of(concat.left, reversed, scale);
+		tMoveNode right = of(concat.right, reversed, scale);
+		if (reversed)
+			return new tConcatNode(right, left, transform);
+		return new tConcatNode(left, right, transform);
+	}
+}
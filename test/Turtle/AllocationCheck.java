@@ -0,0 +1,68 @@
+package Turtle;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Checks that closeToPath and angleToPoint allocate nothing once the
+ * Turtle's path index is built, by counting the bytes the calling thread
+ * allocates over many calls. Needs a HotSpot-based JVM for the
+ * per-thread allocation counter. Run from the repository root with:
+ * 
+ * <pre>
+ * javac -cp core.jar -d out src/Turtle/*.java test/Turtle/*.java
+ * java -cp core.jar:out Turtle.AllocationCheck
+ * </pre>
+ * 
+ * Exits with status 1 if any call allocated.
+ */
+public class AllocationCheck {
+	private static final int WARMUP_CALLS = 50000;
+	private static final int CALLS = 200000;
+	private static final int ROUNDS = 3;
+
+	private static final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+			.getThreadMXBean();
+
+	private static boolean sink; // keeps results alive so the calls aren't optimized away
+	private static float angleSink;
+
+	public static void main(String[] args) {
+		TurtleCore T = new TurtleCore(800, 600);
+		for (int i = 0; i < 2000; i++) {
+			T.forward(5 + i % 13);
+			T.right(37);
+		}
+
+		boolean ok = true;
+		ok &= check("closeToPath", T, true);
+		ok &= check("angleToPoint", T, false);
+		if (!ok)
+			System.exit(1);
+	}
+
+	// bytes allocated by the current thread over CALLS calls, after warming
+	// up; the best of a few rounds, so one-off work such as the JIT swapping
+	// in compiled code mid-round isn't counted as steady-state allocation
+	private static boolean check(String name, TurtleCore T, boolean path) {
+		run(T, path, WARMUP_CALLS);
+		long allocated = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+			run(T, path, CALLS);
+			allocated = Math.min(allocated, threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before);
+		}
+		System.out.println(name + ": " + allocated + " bytes allocated over " + CALLS + " calls");
+		return allocated == 0;
+	}
+
+	private static void run(TurtleCore T, boolean path, int calls) {
+		for (int i = 0; i < calls; i++) {
+			float d = 1 + (i & 63);
+			if (path) {
+				sink ^= T.closeToPath(d);
+			} else {
+				angleSink += T.angleToPoint(d * 7, 600 - d * 5);
+			}
+		}
+	}
+}
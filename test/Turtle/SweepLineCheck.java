@@ -0,0 +1,161 @@
+package Turtle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * Checks the sweep-line self-intersection report against a brute-force
+ * test of every pair of history lines, on random walks, a tight spiral,
+ * grids whose lines touch end to end, overlapping collinear lines, a star
+ * of lines through one point, paths with PENUP moves, and random lines
+ * between the points of a small integer grid (shared endpoints, vertical,
+ * collinear and zero-length lines, several lines crossing at one point).
+ * Also times the report on 16000 long parallel lines, which must take
+ * well under a second now that only neighbouring lines are tested.
+ * Run from the repository root with:
+ * 
+ * <pre>
+ * javac -cp core.jar -d out src/Turtle/*.java test/Turtle/*.java
+ * java -cp core.jar:out Turtle.SweepLineCheck
+ * </pre>
+ * 
+ * Exits with status 1 if the two disagree on any path, or if the parallel
+ * lines take more than PARALLEL_LIMIT_MS.
+ */
+public class SweepLineCheck {
+	private static final long PARALLEL_LIMIT_MS = 2000;
+
+	public static void main(String[] args) {
+		boolean ok = true;
+		Random random = new Random(8);
+		for (int trial = 0; trial < 20; trial++) {
+			TurtleCore T = new TurtleCore(800, 600);
+			for (int i = 0; i < 300; i++) {
+				T.forward(random.nextInt(80));
+				T.right(random.nextInt(8) * 45);
+				if (random.nextInt(10) == 0)
+					T.setPenState(T.getPenState() == penStates.PENUP ? penStates.PENDOWN : penStates.PENUP);
+			}
+			ok &= check("random walk " + trial, T);
+		}
+
+		TurtleCore spiral = new TurtleCore(800, 600);
+		for (int i = 0; i < 1500; i++) {
+			spiral.forward(1 + i * 0.05f);
+			spiral.right(7.3f);
+		}
+		ok &= check("spiral", spiral);
+
+		TurtleCore grid = new TurtleCore(800, 600);
+		for (int row = 0; row < 10; row++) {
+			for (int i = 0; i < 4; i++) {
+				grid.forward(20);
+				grid.right(90);
+			}
+			grid.forward(20);
+		}
+		ok &= check("grid", grid);
+
+		TurtleCore collinear = new TurtleCore(800, 600);
+		collinear.forward(100);
+		collinear.back(50);
+		collinear.forward(80);
+		collinear.right(90);
+		collinear.forward(10);
+		collinear.right(90);
+		collinear.forward(200);
+		ok &= check("collinear", collinear);
+
+		TurtleCore walk = new TurtleCore(800, 600);
+		for (int i = 0; i < 2000; i++) {
+			walk.forward(random.nextInt(80));
+			walk.right(random.nextFloat() * 360);
+		}
+		ok &= check("long walk", walk);
+
+		TurtleCore star = new TurtleCore(800, 600);
+		for (int i = 0; i < 100; i++) {
+			star.forward(100);
+			star.back(200);
+			star.forward(100);
+			star.right(1.2f);
+		}
+		ok &= check("star", star);
+
+		int mismatches = 0;
+		for (int trial = 0; trial < 2000; trial++) {
+			int size = 1 + random.nextInt(6);
+			tLineBuffer history = new tLineBuffer();
+			float x = random.nextInt(size + 1);
+			float y = random.nextInt(size + 1);
+			for (int i = 0; i < 30; i++) {
+				float toX = random.nextInt(4) == 0 ? x : random.nextInt(size + 1);
+				float toY = random.nextInt(size + 1);
+				history.add(x, y, toX, toY, 0, random.nextInt(8) == 0 ? penStates.PENUP : penStates.PENDOWN);
+				if (random.nextInt(5) != 0) {
+					x = toX;
+					y = toY;
+				}
+			}
+			if (!check(null, history, tSweepLine.report(history, null)))
+				mismatches++;
+		}
+		System.out.println("grid lines: " + mismatches + " mismatches in 2000 trials");
+		ok &= mismatches == 0;
+
+		TurtleCore parallel = new TurtleCore(800, 600);
+		for (int i = 0; i < 16000; i++) {
+			parallel.setPenState(penStates.PENDOWN);
+			parallel.forward(500);
+			parallel.setPenState(penStates.PENUP);
+			parallel.back(500);
+			parallel.right(90);
+			parallel.forward(0.01f);
+			parallel.left(90);
+		}
+		long start = System.nanoTime();
+		int found = parallel.selfIntersections().length;
+		long elapsed = (System.nanoTime() - start) / 1000000;
+		System.out.println("parallel: " + found + " crossings in " + elapsed + " ms");
+		ok &= found == 0 && elapsed <= PARALLEL_LIMIT_MS;
+
+		if (!ok)
+			System.exit(1);
+	}
+
+	private static boolean check(String name, TurtleCore T) {
+		return check(name, T.commandHistory, T.selfIntersections());
+	}
+
+	// compares found with every intersecting pair of history lines, printing
+	// the counts unless name is null
+	private static boolean check(String name, tLineBuffer history, tCrossing[] found) {
+		ArrayList<String> expected = new ArrayList<String>();
+		for (int i = 0; i < history.size(); i++) {
+			for (int j = i + 1; j < history.size(); j++) {
+				if (history.state[i] == penStates.PENUP || history.state[j] == penStates.PENUP)
+					continue;
+				if (tLine.intersects(history.x0[i], history.y0[i], history.x1[i], history.y1[i], history.state[i],
+						history.x0[j], history.y0[j], history.x1[j], history.y1[j], history.state[j]))
+					expected.add(key(history.get(i, null), history.get(j, null)));
+			}
+		}
+		ArrayList<String> actual = new ArrayList<String>();
+		for (tCrossing crossing : found) {
+			actual.add(key(crossing.line0, crossing.line1));
+		}
+		Collections.sort(expected);
+		Collections.sort(actual);
+		boolean same = expected.equals(actual);
+		if (name != null)
+			System.out.println(name + ": " + actual.size() + " crossings, brute force " + expected.size()
+					+ (same ? "" : " MISMATCH"));
+		return same;
+	}
+
+	private static String key(tLine a, tLine b) {
+		return a.p0.x + "," + a.p0.y + "," + a.p1.x + "," + a.p1.y + "|" + b.p0.x + "," + b.p0.y + "," + b.p1.x
+				+ "," + b.p1.y;
+	}
+}